@@ -0,0 +1,125 @@
+package chord;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.schedule.Schedule;
+
+/**
+ * This class builds a deterministic Chord ring whose finger tables and successors lists are already converged,
+ * to be used outside the simulator (i.e. without running any stabilization)
+ */
+public class ConvergedRing {
+	private int hash_size;
+	private int[] ids;
+	private Node[] nodes;
+
+	/**
+	 * Public constructor: creates num_nodes nodes with distinct random ids and initializes their data structures
+	 * with the correct successors and fingers
+	 * @param num_nodes number of nodes in the ring
+	 * @param hash_size number of bits of the identifiers (it must allow num_nodes distinct ids)
+	 * @param successors_size size of the successors list
+	 * @param seed seed of the random number generator
+	 */
+	public ConvergedRing(int num_nodes, int hash_size, int successors_size, long seed) {
+		if(hash_size > 30 || (1L << hash_size) < num_nodes) {
+			throw new IllegalArgumentException("Hash size "+hash_size+" cannot contain "+num_nodes+" nodes");
+		}
+		this.hash_size = hash_size;
+		Random rnd = new Random(seed);
+
+		// the stabilizations and crashes scheduled by initSuccessor are never executed
+		RunEnvironment.init(new Schedule(), null, null, false);
+
+		int space = 1 << hash_size;
+		boolean[] taken = new boolean[space];
+		this.ids = new int[num_nodes];
+		for(int i=0; i < num_nodes; i++) {
+			int id = rnd.nextInt(space);
+			while(taken[id]) {
+				id = rnd.nextInt(space);
+			}
+			taken[id] = true;
+			this.ids[i] = id;
+		}
+		Arrays.sort(this.ids);
+
+		LinkedHashMap<Integer, Lookup> lookup_table = new LinkedHashMap<>();
+		MessageStats message_stats = new MessageStats();
+		NodeConfig config = new NodeConfig.Builder()
+				.setHashSize(hash_size)
+				.setSuccessorsSize(successors_size)
+				.setStabOffset(Double.MAX_VALUE)
+				.setMeanPacketDelay(50)
+				.setMaximumAllowedDelay(500)
+				.build();
+		this.nodes = new Node[num_nodes];
+		for(int i=0; i < num_nodes; i++) {
+			this.nodes[i] = new Node(null, null, rnd, this.ids[i], 0, 0, lookup_table, message_stats, config);
+		}
+
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			for(int i=0; i < num_nodes; i++) {
+				Node node = this.nodes[i];
+				node.initSuccessor(this.nodes[(i+1) % num_nodes]);
+				SuccessorList.Builder successors = node.getSuccessors().toBuilder(successors_size);
+				for(int j=2; j <= successors_size && j < num_nodes; j++) {
+					successors.add(this.nodes[(i+j) % num_nodes]);
+				}
+				node.setSuccessors(successors.build());
+				for(int k=2; k <= hash_size; k++) {
+					node.getFinger().setEntry(k, this.successorOf((int) ((this.ids[i] + (1L << (k-1))) % space)));
+				}
+				node.setPredecessor(this.nodes[(i-1+num_nodes) % num_nodes]);
+			}
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/**
+	 * Returns the node responsible for the given identifier
+	 * @param key the identifier of interest
+	 * @return the first node with an id greater or equal than the key (wrapping around the ring)
+	 */
+	public Node successorOf(int key) {
+		int index = Arrays.binarySearch(this.ids, key);
+		if(index < 0) {
+			index = -index-1;
+		}
+		return this.nodes[index % this.nodes.length];
+	}
+
+	/**
+	 * Returns the node in the given position (nodes are sorted by id)
+	 * @param index position of the node
+	 * @return the node in the given position
+	 */
+	public Node getNode(int index) {
+		return this.nodes[index];
+	}
+
+	/**
+	 * Returns the number of nodes in the ring
+	 * @return the number of nodes in the ring
+	 */
+	public int size() {
+		return this.nodes.length;
+	}
+
+	/**
+	 * Returns the number of bits of the identifiers
+	 * @return the number of bits of the identifiers
+	 */
+	public int getHashSize() {
+		return this.hash_size;
+	}
+}
@@ -0,0 +1,203 @@
+package chord;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * This class benchmarks the routing primitives (Utils, FingerTable and the Node routing methods) on converged rings
+ * of increasing size. Each benchmark is run for some warm-up iterations, whose results are discarded, and then for
+ * some measured iterations; the mean time per operation and its standard deviation are reported.
+ * Usage: RoutingBenchmark [min_exponent] [max_exponent] [output_file]; rings of 2^min_exponent, 2^(min_exponent+2) ... 2^max_exponent nodes
+ * are built (default 10 and 20). Rings with 2^20 nodes require a heap of at least 4 GB.
+ */
+public class RoutingBenchmark {
+	private static final long SEED = 42;
+	private static final int SUCCESSORS_SIZE = 8;
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASURED_ITERATIONS = 10;
+	private static final int OPS_PER_ITERATION = 100000;
+	private static final int SAMPLES = 4096;
+
+	/**
+	 * A benchmarked operation
+	 */
+	private interface Operation {
+		/**
+		 * Runs the i-th invocation of the operation
+		 * @param i invocation index
+		 * @return a value depending on the result, to prevent dead code elimination
+		 */
+		long run(int i);
+	}
+
+	private static volatile long sink;
+
+	/**
+	 * Entry point of the benchmark
+	 * @param args minimum exponent, maximum exponent and output file (all optional)
+	 * @throws IOException if the output file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int min_exp = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int max_exp = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		String output = args.length > 2 ? args[2] : "routing_benchmark.csv";
+
+		String results = "benchmark,nodes,hash_size,ns_per_op,stdev_ns\n";
+		for(int exp = min_exp; exp <= max_exp; exp += 2) {
+			int num_nodes = 1 << exp;
+			int hash_size = Math.min(exp+4, 30);
+			ConvergedRing ring = new ConvergedRing(num_nodes, hash_size, SUCCESSORS_SIZE, SEED);
+			System.out.println("\nRing of "+num_nodes+" nodes, m = "+hash_size);
+			results += runAll(ring);
+		}
+
+		BufferedWriter writer = new BufferedWriter(new FileWriter(new File(output)));
+		try {
+			writer.write(results);
+		} finally {
+			writer.close();
+		}
+		System.out.println("\nResults saved in "+new File(output).getCanonicalPath());
+	}
+
+	/**
+	 * Runs all benchmarks on the given ring
+	 * @param ring the converged ring
+	 * @return the results in CSV format
+	 */
+	private static String runAll(ConvergedRing ring) {
+		Random rnd = new Random(SEED);
+		int space = 1 << ring.getHashSize();
+		int hash_size = ring.getHashSize();
+
+		final int[] values = new int[SAMPLES];
+		final int[] lower = new int[SAMPLES];
+		final int[] upper = new int[SAMPLES];
+		final String[] strings = new String[SAMPLES];
+		final Node[] sources = new Node[SAMPLES];
+		for(int i=0; i < SAMPLES; i++) {
+			values[i] = rnd.nextInt(space);
+			lower[i] = rnd.nextInt(space);
+			upper[i] = rnd.nextInt(space);
+			strings[i] = Integer.toHexString(rnd.nextInt());
+			sources[i] = ring.getNode(rnd.nextInt(ring.size()));
+		}
+
+		final FingerTable scratch = new FingerTable(hash_size);
+		for(int k=1; k <= hash_size; k++) {
+			scratch.setEntry(k, sources[k]);
+		}
+
+		// each data node receives some keys in (predecessor, id], transferred back and forth by the benchmark
+		final Node[] data_nodes = new Node[SAMPLES/16];
+		final int[] split_keys = new int[data_nodes.length];
+		for(int i=0; i < data_nodes.length; i++) {
+			int index = rnd.nextInt(ring.size());
+			Node node = ring.getNode(index);
+			int pred_id = ring.getNode((index-1+ring.size()) % ring.size()).getId();
+			int arc = Math.floorMod(node.getId()-pred_id, space);
+			TreeMap<Integer, String> data = new TreeMap<>();
+			for(int j=0; j < 32; j++) {
+				int key = (pred_id + 1 + rnd.nextInt(arc)) % space;
+				data.put(key, strings[j]);
+			}
+			node.newData(data);
+			data_nodes[i] = node;
+			split_keys[i] = (pred_id + Math.max(arc/2, 1)) % space;
+		}
+
+		String prefix = ring.size()+","+hash_size;
+		String results = "";
+		results += measure("Utils.belongsToInterval", prefix, OPS_PER_ITERATION, new Operation() {
+			public long run(int i) {
+				int j = i & (SAMPLES-1);
+				return Utils.belongsToInterval(values[j], lower[j], upper[j]) ? 1 : 0;
+			}
+		});
+		results += measure("Utils.getHash", prefix, OPS_PER_ITERATION/10, new Operation() {
+			public long run(int i) {
+				return Utils.getHash(strings[i & (SAMPLES-1)], hash_size);
+			}
+		});
+		results += measure("FingerTable.getKeys", prefix, OPS_PER_ITERATION/10, new Operation() {
+			public long run(int i) {
+				return sources[i & (SAMPLES-1)].getFinger().getKeys(true).size();
+			}
+		});
+		results += measure("FingerTable.setEntry+removeEntry(Node)", prefix, OPS_PER_ITERATION/10, new Operation() {
+			public long run(int i) {
+				Node node = sources[i & (SAMPLES-1)];
+				scratch.setEntry(1 + i % hash_size, node);
+				scratch.removeEntry(node);
+				return node.getId();
+			}
+		});
+		results += measure("Node.closest_preceding_node", prefix, OPS_PER_ITERATION/10, new Operation() {
+			public long run(int i) {
+				int j = i & (SAMPLES-1);
+				return sources[j].closest_preceding_node(values[j]).getId();
+			}
+		});
+		results += measure("Node.processSuccRequest", prefix, OPS_PER_ITERATION/10, new Operation() {
+			public long run(int i) {
+				int j = i & (SAMPLES-1);
+				return sources[j].processSuccRequest(values[j]).getFirst().getId();
+			}
+		});
+		results += measure("Node.transferDataUpToKey+newData", prefix, OPS_PER_ITERATION/100, new Operation() {
+			public long run(int i) {
+				int j = i % data_nodes.length;
+				TreeMap<Integer, String> moved = data_nodes[j].transferDataUpToKey(split_keys[j]);
+				data_nodes[j].newData(moved);
+				return moved.size();
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Measures the given operation
+	 * @param name name of the benchmark
+	 * @param prefix CSV prefix (ring size and hash size)
+	 * @param ops number of operations per iteration
+	 * @param operation the operation to measure
+	 * @return the result in CSV format
+	 */
+	private static String measure(String name, String prefix, int ops, Operation operation) {
+		long acc = 0;
+		for(int it=0; it < WARMUP_ITERATIONS; it++) {
+			for(int i=0; i < ops; i++) {
+				acc += operation.run(i);
+			}
+		}
+
+		ArrayList<Double> samples = new ArrayList<>();
+		for(int it=0; it < MEASURED_ITERATIONS; it++) {
+			long start = System.nanoTime();
+			for(int i=0; i < ops; i++) {
+				acc += operation.run(i);
+			}
+			samples.add((System.nanoTime()-start)/(double) ops);
+		}
+		sink = acc;
+
+		double mean = 0;
+		for(double sample: samples) {
+			mean += sample;
+		}
+		mean /= samples.size();
+		double variance = 0;
+		for(double sample: samples) {
+			variance += (sample-mean)*(sample-mean);
+		}
+		double stdev = Math.sqrt(variance/samples.size());
+
+		System.out.println(String.format("%-40s %12.1f ns/op  (+- %.1f)", name, mean, stdev));
+		return name+","+prefix+","+mean+","+stdev+"\n";
+	}
+}
@@ -0,0 +1,228 @@
+package chord;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.environment.RunState;
+import repast.simphony.engine.schedule.ActionFactory;
+import repast.simphony.engine.schedule.DefaultActionFactory;
+import repast.simphony.engine.schedule.IAction;
+import repast.simphony.engine.schedule.ISchedulableAction;
+import repast.simphony.engine.schedule.Schedule;
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.parameter.DefaultParameters;
+
+/**
+ * This class runs the whole TopologyBuilder scenario (initialization, data generation, lookup batches, joins, leaves
+ * and crashes) without the GUI, for every combination of the swept parameters, and reports the simulator throughput.
+ * Usage: SimulationBenchmark [output_file] [name=value1,value2,...]...
+ * Every parameter of Chord.rs/parameters.xml can be swept; "ticks" sets the number of simulated ticks of each run.
+ * By default m, init_num_nodes, total_number_data and number_lookup are swept and the preloaded initialization is used.
+ * Besides the throughput, the lookup path length, the maintenance traffic and the finger table size are reported,
+ * e.g. to compare finger bases with finger_base=2,4,8,16.
+ * It must be run from the Chord project directory.
+ */
+public class SimulationBenchmark {
+	private static final String PARAMETERS_FILE = "Chord.rs/parameters.xml";
+
+	/**
+	 * Schedule counting the executed events: every scheduled action is wrapped, so that the actions removed
+	 * or still pending at the end of the run are not counted
+	 */
+	private static class CountingSchedule extends Schedule {
+		private final ActionFactory action_factory = new DefaultActionFactory();
+		private long events = 0;
+
+		@Override
+		public ISchedulableAction schedule(ScheduleParameters scheduleParams, Object obj, String methodName, Object... parameters) {
+			IAction action = this.action_factory.createAction(obj, methodName, parameters);
+			return super.schedule(scheduleParams, () -> {
+				this.events++;
+				action.execute();
+			});
+		}
+	}
+
+	/**
+	 * Entry point of the benchmark
+	 * @param args output file and swept parameters (all optional)
+	 * @throws Exception if the parameters file cannot be read or the output file cannot be written
+	 */
+	public static void main(String[] args) throws Exception {
+		String output = "simulation_benchmark.csv";
+		LinkedHashMap<String, String[]> sweep = new LinkedHashMap<>();
+		sweep.put("ticks", new String[] {"1000"});
+		sweep.put("one_at_time_init", new String[] {"false"});
+		sweep.put("m", new String[] {"10", "14"});
+		sweep.put("init_num_nodes", new String[] {"100", "1000"});
+		sweep.put("total_number_data", new String[] {"1000"});
+		sweep.put("number_lookup", new String[] {"10", "100"});
+		for(String arg: args) {
+			int eq = arg.indexOf('=');
+			if(eq == -1) {
+				output = arg;
+			} else {
+				sweep.put(arg.substring(0, eq), arg.substring(eq+1).split(","));
+			}
+		}
+
+		LinkedHashMap<String, String> defaults = loadDefaults();
+
+		ArrayList<LinkedHashMap<String, String>> configurations = new ArrayList<>();
+		configurations.add(new LinkedHashMap<String, String>());
+		for(Map.Entry<String, String[]> dimension: sweep.entrySet()) {
+			ArrayList<LinkedHashMap<String, String>> expanded = new ArrayList<>();
+			for(LinkedHashMap<String, String> configuration: configurations) {
+				for(String value: dimension.getValue()) {
+					LinkedHashMap<String, String> copy = new LinkedHashMap<>(configuration);
+					copy.put(dimension.getKey(), value);
+					expanded.add(copy);
+				}
+			}
+			configurations = expanded;
+		}
+
+		String results = String.join(",", sweep.keySet()) + ",events,wall_ms,events_per_s,ms_per_tick,peak_heap_mb,alloc_mb_per_s,finger_entries,hops_p50,hops_p90,hops_p99,maintenance_msgs\n";
+		for(LinkedHashMap<String, String> configuration: configurations) {
+			if(Integer.parseInt(configuration.getOrDefault("init_num_nodes", defaults.get("init_num_nodes"))) > (1 << Integer.parseInt(configuration.getOrDefault("m", defaults.get("m"))))) {
+				continue;
+			}
+			results += String.join(",", configuration.values()) + "," + run(defaults, configuration) + "\n";
+		}
+
+		BufferedWriter writer = new BufferedWriter(new FileWriter(new File(output)));
+		try {
+			writer.write(results);
+		} finally {
+			writer.close();
+		}
+		System.out.println("\nResults saved in "+new File(output).getCanonicalPath());
+	}
+
+	/**
+	 * Reads the default value and the type of each parameter from the parameters file
+	 * @return map from each parameter name to its default value and from "name:type" to its type
+	 * @throws Exception if the file cannot be parsed
+	 */
+	private static LinkedHashMap<String, String> loadDefaults() throws Exception {
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(PARAMETERS_FILE));
+		NodeList list = doc.getElementsByTagName("parameter");
+		LinkedHashMap<String, String> defaults = new LinkedHashMap<>();
+		for(int i=0; i < list.getLength(); i++) {
+			Element parameter = (Element) list.item(i);
+			defaults.put(parameter.getAttribute("name")+":type", parameter.getAttribute("type"));
+			defaults.put(parameter.getAttribute("name"), parameter.getAttribute("defaultValue"));
+		}
+		return defaults;
+	}
+
+	/**
+	 * Runs a single simulation
+	 * @param defaults default values and types of the parameters
+	 * @param configuration values of the swept parameters
+	 * @return the measures in CSV format
+	 */
+	private static String run(LinkedHashMap<String, String> defaults, LinkedHashMap<String, String> configuration) {
+		DefaultParameters params = new DefaultParameters();
+		for(String name: defaults.keySet()) {
+			if(!name.endsWith(":type")) {
+				String value = configuration.getOrDefault(name, defaults.get(name));
+				String type = defaults.get(name+":type");
+				switch(type) {
+					case "int":
+						params.addParameter(name, name, Integer.class, Integer.valueOf(value), false);
+						break;
+					case "long":
+						params.addParameter(name, name, Long.class, Long.valueOf(value), false);
+						break;
+					case "double":
+						params.addParameter(name, name, Double.class, Double.valueOf(value), false);
+						break;
+					case "boolean":
+						params.addParameter(name, name, Boolean.class, Boolean.valueOf(value), false);
+						break;
+					default:
+						params.addParameter(name, name, String.class, value, false);
+				}
+			}
+		}
+		double ticks = Double.parseDouble(configuration.getOrDefault("ticks", "1000"));
+
+		System.gc();
+		for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+		long alloc_start = allocatedBytes();
+
+		CountingSchedule schedule = new CountingSchedule();
+		RunEnvironment.init(schedule, null, params, true);
+		Context<Object> context = new DefaultContext<>();
+		RunState.init().setMasterContext(context);
+
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+		System.setOut(silent);
+		System.setErr(silent);
+		TopologyBuilder builder = new TopologyBuilder();
+		long start = System.nanoTime();
+		try {
+			builder.build(context);
+			while(schedule.getTickCount() < ticks) {
+				schedule.execute();
+			}
+		} finally {
+			System.setOut(out);
+			System.setErr(err);
+		}
+		double wall_ms = (System.nanoTime()-start)/1e6;
+
+		long alloc = allocatedBytes()-alloc_start;
+		long peak = 0;
+		for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		String result = schedule.events + "," + wall_ms + "," + (schedule.events/(wall_ms/1000)) + "," + (wall_ms/ticks) + ","
+				+ (peak/(1024.0*1024.0)) + "," + (alloc_start < 0 ? "-1" : String.valueOf(alloc/(1024.0*1024.0)/(wall_ms/1000))) + ","
+				+ FingerTable.size(params.getInteger("m"), params.getInteger("finger_base")) + ","
+				+ builder.getLookupStats().getHopsPercentile("lookup", 50) + "," + builder.getLookupStats().getHopsPercentile("lookup", 90) + ","
+				+ builder.getLookupStats().getHopsPercentile("lookup", 99) + "," + builder.getMessageStats().getMaintenanceMessages();
+		System.out.println(configuration + " -> " + result);
+		return result;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread, if supported by the JVM
+	 * @return the number of bytes allocated by the current thread, -1 if not supported
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,106 @@
+package chord;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+
+import repast.simphony.engine.environment.RunEnvironment;
+
+/**
+ * This class keeps track of a multi-key lookup: the keys are sorted by identifier and routed as a group, which is split
+ * only where the next hops of its keys diverge. Each key is recorded in the lookup statistics (type "batch") when its owner
+ * is known by the initiator; the future is completed when all the keys have been resolved
+ */
+public class BatchLookup {
+	private int[] keys;
+	private int node_req_id;
+	private double starting_tick;
+	private LinkedHashMap<Integer, Integer> owners;
+	private int pending;
+	private CompletableFuture<BatchLookup> future;
+	private TopologyBuilder top;
+	
+	/**
+	 * Public constructor
+	 * @param keys target keys
+	 * @param node_req_id id of the lookup initiator
+	 * @param tick starting simulation tick
+	 * @param top reference to the TopologyBuilder
+	 */
+	public BatchLookup(int[] keys, int node_req_id, double tick, TopologyBuilder top) {
+		this.keys = Arrays.stream(keys).distinct().sorted().toArray();
+		this.node_req_id = node_req_id;
+		this.starting_tick = tick;
+		this.top = top;
+		this.owners = new LinkedHashMap<>();
+		this.pending = this.keys.length;
+		this.future = new CompletableFuture<>();
+		if(this.pending == 0) {
+			this.future.complete(this);
+		}
+	}
+	
+	/**
+	 * Sets the result of a key
+	 * @param key the resolved key
+	 * @param owner reference to the responsible for the key, null if the lookup of the key failed
+	 * @param path_length length of the path between the initiator and the responsible
+	 * @param num_timeouts number of timeouts encountered
+	 */
+	public void setResult(int key, Node owner, int path_length, int num_timeouts) {
+		if(this.owners.containsKey(key)) {
+			return;
+		}
+		this.owners.put(key, owner == null ? null : owner.getId());
+		double latency = RunEnvironment.getInstance().getCurrentSchedule().getTickCount() - this.starting_tick;
+		if(owner == null) {
+			this.top.getLookupStats().record("batch", -1, -1, 0, false);
+		} else {
+			this.top.getLookupStats().record("batch", latency, path_length, num_timeouts, owner.getId() == this.top.firstNotCrashed(key));
+		}
+		this.pending--;
+		if(this.pending == 0) {
+			this.future.complete(this);
+		}
+	}
+	
+	/**
+	 * Returns the future completed when all the keys have been resolved
+	 * @return the future of the lookup
+	 */
+	public CompletableFuture<BatchLookup> getFuture() {
+		return this.future;
+	}
+	
+	/**
+	 * Returns the target keys, sorted by identifier
+	 * @return the target keys
+	 */
+	public int[] getKeys() {
+		return this.keys;
+	}
+	
+	/**
+	 * Returns the id of the lookup initiator
+	 * @return the id of the lookup initiator
+	 */
+	public int getNodeId() {
+		return this.node_req_id;
+	}
+	
+	/**
+	 * Returns the owners found so far
+	 * @return map key -> id of the responsible (null if the lookup of the key failed)
+	 */
+	public LinkedHashMap<Integer, Integer> getOwners() {
+		return this.owners;
+	}
+	
+	/**
+	 * Returns if all the keys have been resolved
+	 * @return true if the lookup has been completed, false otherwise
+	 */
+	public boolean isComplete() {
+		return this.pending == 0;
+	}
+}
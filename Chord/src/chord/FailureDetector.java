@@ -0,0 +1,162 @@
+package chord;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class defines a failure detector used by a node to suspect the crash of the peers in its finger table and successors list.
+ * The peers are heard only through the heartbeats sent to all of them every detector_interval ticks, so that the intervals between
+ * two answers do not depend on the lookup traffic; a peer is monitored from the first time it is checked.
+ * Only the most recently used peers are kept.
+ */
+public abstract class FailureDetector {
+	private LinkedHashMap<Integer, double[]> peers;
+	
+	/**
+	 * Constructor
+	 * @param capacity maximum number of monitored peers
+	 */
+	protected FailureDetector(int capacity) {
+		this.peers = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+				return this.size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the failure detector of the given type
+	 * @param type "none", "heartbeat" or "phi"
+	 * @param capacity maximum number of monitored peers
+	 * @param heartbeat_timeout ticks without answers after which a peer is suspected (heartbeat)
+	 * @param phi_threshold suspicion level above which a peer is suspected (phi)
+	 * @param initial_interval ticks between two heartbeats to a peer, initial and minimum mean interval (phi)
+	 * @return the failure detector, null for "none"
+	 * @throws RuntimeException if the type is unknown
+	 */
+	public static FailureDetector create(String type, int capacity, double heartbeat_timeout, double phi_threshold, double initial_interval) {
+		switch(type) {
+			case "none":
+				return null;
+			case "heartbeat":
+				return new HeartbeatFailureDetector(capacity, heartbeat_timeout);
+			case "phi":
+				return new PhiAccrualFailureDetector(capacity, phi_threshold, initial_interval);
+			default:
+				throw new RuntimeException("Error, unknown failure detector "+type);
+		}
+	}
+	
+	/**
+	 * Records an answer of the given peer
+	 * @param peer the node that answered
+	 * @param tick arrival tick of the answer
+	 */
+	public void heard(Node peer, double tick) {
+		double[] state = this.peers.get(peer.getId());
+		if(state == null) {
+			this.peers.put(peer.getId(), this.newState(tick));
+		} else if(tick > state[0]) {
+			this.update(state, tick);
+			state[0] = tick;
+		}
+	}
+	
+	/**
+	 * Returns true if the given peer is suspected to be crashed, false otherwise
+	 * @param peer the node of interest
+	 * @param tick current tick
+	 * @return true if the peer is suspected, false otherwise
+	 */
+	public boolean isSuspected(Node peer, double tick) {
+		double[] state = this.peers.get(peer.getId());
+		if(state == null) {
+			this.peers.put(peer.getId(), this.newState(tick));
+			return false;
+		}
+		return this.suspect(state, tick - state[0]);
+	}
+	
+	/**
+	 * Stops monitoring the given peer
+	 * @param peer the node of interest
+	 */
+	public void forget(Node peer) {
+		this.peers.remove(peer.getId());
+	}
+	
+	/**
+	 * Stops monitoring all peers
+	 */
+	public void clear() {
+		this.peers.clear();
+	}
+	
+	/**
+	 * Writes the state of the monitored peers in binary format, from the least to the most recently used one; the last arrival
+	 * ticks are written as ticks elapsed before the given tick, so that they can be restored in a run starting from another tick
+	 * @param out the output stream
+	 * @param tick current tick
+	 * @throws IOException if the state cannot be written
+	 */
+	public void writeState(DataOutputStream out, double tick) throws IOException {
+		out.writeInt(this.peers.size());
+		for(Map.Entry<Integer, double[]> entry: this.peers.entrySet()) {
+			double[] state = entry.getValue();
+			out.writeInt(entry.getKey());
+			out.writeInt(state.length);
+			out.writeDouble(tick - state[0]);
+			for(int i=1; i < state.length; i++) {
+				out.writeDouble(state[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Restores the state written by writeState
+	 * @param in the input stream
+	 * @param tick current tick
+	 * @throws IOException if the state cannot be read
+	 */
+	public void readState(DataInputStream in, double tick) throws IOException {
+		this.clear();
+		int count = in.readInt();
+		for(int i=0; i < count; i++) {
+			int peer = in.readInt();
+			double[] state = new double[in.readInt()];
+			state[0] = tick - in.readDouble();
+			for(int j=1; j < state.length; j++) {
+				state[j] = in.readDouble();
+			}
+			this.peers.put(peer, state);
+		}
+	}
+	
+	/**
+	 * Returns the state of a new monitored peer; the first element is the last arrival tick
+	 * @param tick the first arrival tick
+	 * @return the state of the peer
+	 */
+	protected abstract double[] newState(double tick);
+	
+	/**
+	 * Updates the state of a peer with a new answer (the last arrival tick is updated by the caller)
+	 * @param state the state of the peer
+	 * @param tick arrival tick of the answer
+	 */
+	protected abstract void update(double[] state, double tick);
+	
+	/**
+	 * Returns true if a peer not heard for the given time has to be suspected
+	 * @param state the state of the peer
+	 * @param elapsed ticks since the last answer
+	 * @return true if the peer is suspected, false otherwise
+	 */
+	protected abstract boolean suspect(double[] state, double elapsed);
+}
@@ -5,11 +5,14 @@ import java.util.Collections;
 import java.util.HashMap;
 
 /**
- * This class defines the structure of the finger table
+ * This class defines the structure of the finger table.
+ * With base b the entries are grouped in levels of b-1 entries: the entry k = i*(b-1)+j, with j in [1,b-1], points to the successor of id + j*b^i
+ * (with b = 2 the entry k points to the successor of id + 2^(k-1)); only the entries whose offset is lower than 2^m are part of the table
  */
 public class FingerTable {
 	private int size;
 	private HashMap<Integer, Node> table;
+	private int version;
 	
 	/**
 	 * Public constructor
@@ -18,6 +21,37 @@ public class FingerTable {
 	public FingerTable(int size) {
 		this.size = size;
 		this.table = new HashMap<>();
+		this.version = 0;
+	}
+	
+	/**
+	 * Returns the number of entries of a finger table with the given base
+	 * @param hash_size number of bits of the identifiers
+	 * @param base base of the finger table (at least 2)
+	 * @return the number of entries whose offset is lower than 2^hash_size
+	 */
+	public static int size(int hash_size, int base) {
+		int size = 0;
+		while(offset(size+1, base) < (1L << hash_size)) {
+			size++;
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns the distance between the node and the start of the given entry
+	 * @param index index in the finger table
+	 * @param base base of the finger table (at least 2)
+	 * @return j*base^i, where index = i*(base-1)+j and j is in [1,base-1]
+	 */
+	public static long offset(int index, int base) {
+		int level = (index-1)/(base-1);
+		long j = (index-1)%(base-1) + 1;
+		long offset = j;
+		for(int i=0; i < level && offset < Long.MAX_VALUE/base; i++) {
+			offset *= base;
+		}
+		return offset;
 	}
 	
 	/**
@@ -74,7 +108,9 @@ public class FingerTable {
 	 */
 	public void setEntry(int index, Node node) {
 		if(index > 0 && index <= size) {
-			this.table.put(index, node);
+			if(this.table.put(index, node) != node) {
+				this.version++;
+			}
 		}
 	}
 	
@@ -83,7 +119,9 @@ public class FingerTable {
 	 * @param index index in the finger table
 	 */
 	public void removeEntry(int index) {
-		this.table.remove(index);
+		if(this.table.remove(index) != null) {
+			this.version++;
+		}
 	}
 	
 	/**
@@ -95,6 +133,7 @@ public class FingerTable {
 		for(int index: indices) {
 			if(this.table.get(index).equals(dead)) {
 				this.table.remove(index);
+				this.version++;
 			}
 		}
 	}
@@ -103,17 +142,34 @@ public class FingerTable {
 	 * Empties the table
 	 */
 	public void clearTable() {
-		this.table.clear();
+		if(!this.table.isEmpty()) {
+			this.table.clear();
+			this.version++;
+		}
+	}
+	
+	/**
+	 * Returns the version of the table, incremented at every change of its entries
+	 * @return the version of the table
+	 */
+	public int getVersion() {
+		return this.version;
 	}
 	
 	@Override
 	public String toString() {
-		String out = "";
+		StringBuilder out = new StringBuilder();
 		
 		for(int i=1; i<=this.size; i++) {
-			out += "\n"+i+"  "+(this.table.get(i) == null ? "-" : this.table.get(i).getId());
+			Node entry = this.table.get(i);
+			out.append("\n").append(i).append("  ");
+			if(entry == null) {
+				out.append("-");
+			} else {
+				out.append(entry.getId());
+			}
 		}
 		
-		return out;
+		return out.toString();
 	}
 }
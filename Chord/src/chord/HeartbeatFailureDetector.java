@@ -0,0 +1,33 @@
+package chord;
+
+/**
+ * This class defines a failure detector suspecting the peers not heard for a fixed number of ticks.
+ * The timeout has to be greater than the interval between two heartbeats to the same peer.
+ */
+public class HeartbeatFailureDetector extends FailureDetector {
+	private double timeout;
+	
+	/**
+	 * Public constructor
+	 * @param capacity maximum number of monitored peers
+	 * @param timeout ticks without answers after which a peer is suspected
+	 */
+	public HeartbeatFailureDetector(int capacity, double timeout) {
+		super(capacity);
+		this.timeout = timeout;
+	}
+	
+	@Override
+	protected double[] newState(double tick) {
+		return new double[] {tick};
+	}
+	
+	@Override
+	protected void update(double[] state, double tick) {
+	}
+	
+	@Override
+	protected boolean suspect(double[] state, double elapsed) {
+		return elapsed > this.timeout;
+	}
+}
@@ -0,0 +1,138 @@
+package chord;
+
+/**
+ * This class provides a fixed-memory histogram of non negative integer values with bounded relative error (HDR-style):
+ * values are grouped in buckets whose width doubles every SUB_BUCKETS buckets, so that the relative error of a recorded
+ * value is at most 1/SUB_BUCKETS. Values greater than MAX_VALUE are recorded as MAX_VALUE.
+ */
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_SHIFT = 40;
+	public static final long MAX_VALUE = (1L << (MAX_SHIFT+SUB_BUCKET_BITS+1))-1;
+	
+	private long[] counts;
+	private long count;
+	private long min;
+	private long max;
+	private long sum;
+	
+	/**
+	 * Public constructor
+	 */
+	public Histogram() {
+		this.counts = new long[2*SUB_BUCKETS + MAX_SHIFT*SUB_BUCKETS];
+		this.reset();
+	}
+	
+	/**
+	 * Public constructor, copying the values recorded by the given histogram
+	 * @param other the histogram to copy
+	 */
+	public Histogram(Histogram other) {
+		this.counts = other.counts.clone();
+		this.count = other.count;
+		this.min = other.min;
+		this.max = other.max;
+		this.sum = other.sum;
+	}
+	
+	/**
+	 * Records a value
+	 * @param value the value to record (negative values are recorded as 0)
+	 */
+	public void record(long value) {
+		value = Math.min(Math.max(value, 0), MAX_VALUE);
+		this.counts[index(value)]++;
+		this.count++;
+		this.sum += value;
+		this.min = Math.min(this.min, value);
+		this.max = Math.max(this.max, value);
+	}
+	
+	/**
+	 * Returns the bucket containing the given value: values lower than 2*SUB_BUCKETS have their own bucket,
+	 * the others are grouped by most significant bit and by the following SUB_BUCKET_BITS bits
+	 * @param value the value of interest
+	 * @return the index of the bucket
+	 */
+	private static int index(long value) {
+		if(value < 2*SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int sub = (int) (value >>> shift) - SUB_BUCKETS;
+		return 2*SUB_BUCKETS + (shift-1)*SUB_BUCKETS + sub;
+	}
+	
+	/**
+	 * Returns the highest value belonging to the given bucket
+	 * @param index the index of the bucket
+	 * @return the highest value belonging to the bucket
+	 */
+	private static long highestValue(int index) {
+		if(index < 2*SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - 2*SUB_BUCKETS)/SUB_BUCKETS + 1;
+		long sub = (index - 2*SUB_BUCKETS)%SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub+1) << shift) - 1;
+	}
+	
+	/**
+	 * Returns the value at the given percentile (nearest-rank method, up to the bucket resolution)
+	 * @param p the percentile, between 0 and 100
+	 * @return the value at the given percentile, 0 if the histogram is empty
+	 */
+	public long getPercentile(double p) {
+		if(this.count == 0) {
+			return 0;
+		}
+		long rank = Math.max((long) Math.ceil(p/100.0*this.count), 1);
+		long seen = 0;
+		for(int i=0; i < this.counts.length; i++) {
+			seen += this.counts[i];
+			if(seen >= rank) {
+				return Math.max(Math.min(highestValue(i), this.max), this.min);
+			}
+		}
+		return this.max;
+	}
+	
+	/**
+	 * Returns the number of recorded values
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return this.count;
+	}
+	
+	/**
+	 * Returns the mean of the recorded values
+	 * @return the mean of the recorded values, 0 if the histogram is empty
+	 */
+	public double getMean() {
+		return this.count == 0 ? 0 : (double) this.sum/this.count;
+	}
+	
+	/**
+	 * Returns the highest recorded value
+	 * @return the highest recorded value, 0 if the histogram is empty
+	 */
+	public long getMax() {
+		return this.count == 0 ? 0 : this.max;
+	}
+	
+	/**
+	 * Removes all the recorded values
+	 */
+	public void reset() {
+		for(int i=0; i < this.counts.length; i++) {
+			this.counts[i] = 0;
+		}
+		this.count = 0;
+		this.sum = 0;
+		this.min = Long.MAX_VALUE;
+		this.max = 0;
+	}
+}
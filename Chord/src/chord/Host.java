@@ -0,0 +1,117 @@
+package chord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * This class groups the virtual nodes run by the same physical node: they share the crash and leave fate, and their
+ * stored keys and served requests are accounted together. The first virtual node is the one drawing the crashes of the host.
+ */
+public class Host {
+	private int id;
+	private ArrayList<Node> nodes;
+	
+	/**
+	 * Public constructor
+	 * @param id id of the physical node
+	 */
+	public Host(int id) {
+		this.id = id;
+		this.nodes = new ArrayList<>();
+	}
+	
+	/**
+	 * Adds a virtual node to the host
+	 * @param node the virtual node
+	 */
+	public void addNode(Node node) {
+		this.nodes.add(node);
+	}
+	
+	/**
+	 * Removes a virtual node that left the ring
+	 * @param node the virtual node
+	 */
+	public void removeNode(Node node) {
+		this.nodes.remove(node);
+	}
+	
+	/**
+	 * Returns the virtual nodes of the host
+	 * @return the virtual nodes of the host
+	 */
+	public ArrayList<Node> getNodes() {
+		return this.nodes;
+	}
+	
+	/**
+	 * Returns if the given virtual node draws the crashes of the host
+	 * @param node the virtual node
+	 * @return true if the node is the first one of the host, false otherwise
+	 */
+	public boolean isPrimary(Node node) {
+		return !this.nodes.isEmpty() && this.nodes.get(0).equals(node);
+	}
+	
+	/**
+	 * Returns the id of the physical node
+	 * @return the id of the physical node
+	 */
+	public int getId() {
+		return this.id;
+	}
+	
+	/**
+	 * Returns the number of keys stored by all the virtual nodes
+	 * @return the number of keys stored
+	 */
+	public int getDataSize() {
+		int size = 0;
+		for(Node node: this.nodes) {
+			size += node.getDataSize();
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns the number of successor requests served by all the virtual nodes
+	 * @return the number of requests served
+	 */
+	public long getRequestsServed() {
+		long served = 0;
+		for(Node node: this.nodes) {
+			served += node.getRequestsServed();
+		}
+		return served;
+	}
+	
+	/**
+	 * Returns the load balance of the physical nodes hosting the given nodes (a node without host counts as a physical node)
+	 * @param nodes the nodes in the ring
+	 * @return array containing number of hosts, maximum and total keys stored, maximum and total requests served
+	 */
+	public static long[] balance(Collection<Node> nodes) {
+		long[] balance = new long[5];
+		HashSet<Host> seen = new HashSet<>();
+		for(Node node: nodes) {
+			long data;
+			long served;
+			if(node.getHost() == null) {
+				data = node.getDataSize();
+				served = node.getRequestsServed();
+			} else if(seen.add(node.getHost())) {
+				data = node.getHost().getDataSize();
+				served = node.getHost().getRequestsServed();
+			} else {
+				continue;
+			}
+			balance[0]++;
+			balance[1] = Math.max(balance[1], data);
+			balance[2] += data;
+			balance[3] = Math.max(balance[3], served);
+			balance[4] += served;
+		}
+		return balance;
+	}
+}
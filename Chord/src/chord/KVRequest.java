@@ -0,0 +1,200 @@
+package chord;
+
+import java.util.concurrent.CompletableFuture;
+
+import repast.simphony.engine.environment.RunEnvironment;
+
+/**
+ * This class keeps track of a put, get or delete operation issued by a node: the responsible for the key is found through
+ * find_successor, then the value is transferred to/from it. The future is completed inside the scheduled event in which
+ * the client receives the response, so its callbacks run at the simulated completion tick
+ */
+public class KVRequest {
+	
+	/**
+	 * Types of the key-value operations
+	 */
+	public enum Operation {
+		PUT("put"),
+		GET("get"),
+		DELETE("delete");
+		
+		private final String type;
+		
+		private Operation(String type) {
+			this.type = type;
+		}
+		
+		/**
+		 * Returns the name of the operation in the lookup statistics
+		 * @return the name of the operation in the lookup statistics
+		 */
+		public String getType() {
+			return this.type;
+		}
+	}
+	
+	private Operation operation;
+	private int key;
+	private String value;
+	private int node_req_id;
+	private double starting_tick;
+	private boolean completed;
+	private Integer node_res_id;
+	private int path_length;
+	private int num_timeouts;
+	private double final_tick;
+	private boolean correct;
+	private boolean found;
+	private String result;
+	private CompletableFuture<KVRequest> future;
+	private TopologyBuilder top;
+	
+	/**
+	 * Public constructor
+	 * @param operation type of the operation
+	 * @param key target key
+	 * @param value value to store (put only, null otherwise)
+	 * @param node_req_id id of the client node
+	 * @param tick starting simulation tick
+	 * @param top reference to the TopologyBuilder
+	 */
+	public KVRequest(Operation operation, int key, String value, int node_req_id, double tick, TopologyBuilder top) {
+		this.operation = operation;
+		this.key = key;
+		this.value = value;
+		this.node_req_id = node_req_id;
+		this.starting_tick = tick;
+		this.top = top;
+		this.completed = false;
+		this.future = new CompletableFuture<>();
+	}
+	
+	/**
+	 * Completes the operation and its future, unless it has already been completed
+	 * @param nodeRes the node that served the operation, null if the operation failed
+	 * @param path_length length of the path between the client and the responsible, -1 if the operation failed
+	 * @param num_timeouts number of timeouts encountered
+	 * @param found true if the key was stored by the responsible before the operation
+	 * @param result value read (get) or removed (delete), null otherwise
+	 */
+	public void setResult(Node nodeRes, int path_length, int num_timeouts, boolean found, String result) {
+		if(this.completed) {
+			return;
+		}
+		this.completed = true;
+		this.node_res_id = nodeRes == null ? null : nodeRes.getId();
+		this.path_length = nodeRes == null ? -1 : path_length;
+		this.num_timeouts = num_timeouts;
+		this.found = found;
+		this.result = result;
+		this.final_tick = RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+		this.correct = nodeRes != null && (nodeRes.getId() == this.top.firstNotCrashed(this.key));
+		this.top.kvCompleted(this);
+		this.future.complete(this);
+	}
+	
+	/**
+	 * Returns the future completed when the client receives the response
+	 * @return the future of the operation
+	 */
+	public CompletableFuture<KVRequest> getFuture() {
+		return this.future;
+	}
+	
+	/**
+	 * Returns the type of the operation
+	 * @return the type of the operation
+	 */
+	public Operation getOperation() {
+		return this.operation;
+	}
+	
+	/**
+	 * Returns the target key
+	 * @return the target key
+	 */
+	public int getKey() {
+		return this.key;
+	}
+	
+	/**
+	 * Returns the value to store
+	 * @return the value to store, null if the operation is not a put
+	 */
+	public String getValue() {
+		return this.value;
+	}
+	
+	/**
+	 * Returns the id of the client node
+	 * @return the id of the client node
+	 */
+	public int getNodeId() {
+		return this.node_req_id;
+	}
+	
+	/**
+	 * Returns if the operation has been completed
+	 * @return true if it has been completed, false otherwise
+	 */
+	public boolean isComplete() {
+		return this.completed;
+	}
+	
+	/**
+	 * Returns if the operation reached a node and got its response
+	 * @return true if the operation has been served, false if it failed or it has not been completed
+	 */
+	public boolean isServed() {
+		return this.completed && this.node_res_id != null;
+	}
+	
+	/**
+	 * Returns if the operation has been served by the responsible for the key
+	 * @return true if the node that served the operation is the responsible, false otherwise
+	 */
+	public boolean isCorrect() {
+		return this.completed && this.correct;
+	}
+	
+	/**
+	 * Returns if the key was stored by the node that served the operation
+	 * @return true if the key was found, false otherwise
+	 */
+	public boolean isFound() {
+		return this.completed && this.found;
+	}
+	
+	/**
+	 * Returns the value read by a get or removed by a delete
+	 * @return the value, null if the key was not found or the operation is a put
+	 */
+	public String getResult() {
+		return this.result;
+	}
+	
+	/**
+	 * Returns the length of the path between the client and the responsible
+	 * @return the length of the path, -1 if the operation failed or it has not been completed
+	 */
+	public int getPathLength() {
+		return this.completed ? this.path_length : -1;
+	}
+	
+	/**
+	 * Returns the number of timeouts encountered by the operation
+	 * @return the number of timeouts, 0 if it has not been completed
+	 */
+	public int getTimeouts() {
+		return this.completed && this.num_timeouts != -1 ? this.num_timeouts : 0;
+	}
+	
+	/**
+	 * Returns the duration of the operation in ticks
+	 * @return the duration of the operation, -1 if it has not been completed
+	 */
+	public double getDuration() {
+		return this.completed ? this.final_tick-this.starting_tick : -1;
+	}
+}
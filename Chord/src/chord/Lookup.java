@@ -20,6 +20,8 @@ public class Lookup {
 	private Boolean correctResult;
 	private Boolean resultHasKey;
 	private Boolean responsibleIsCrashed;
+	private Double parallel_saved;
+	private Integer parallel_extra_messages;
 	private TopologyBuilder top;
 	
 	/**
@@ -39,6 +41,18 @@ public class Lookup {
 		this.prioriCorrectNode = prioriCorrectNode;
 		this.top = top;
 		this.completed = false;
+		this.parallel_saved = 0.0;
+		this.parallel_extra_messages = 0;
+	}
+	
+	/**
+	 * Accounts a parallel step of the lookup
+	 * @param saved ticks saved w.r.t. waiting for the answer (or the timeout) of the best candidate only
+	 * @param extra_messages messages exchanged with the other candidates
+	 */
+	public void addParallelStep(double saved, int extra_messages) {
+		this.parallel_saved += saved;
+		this.parallel_extra_messages += extra_messages;
 	}
 	
 	/**
@@ -65,6 +79,7 @@ public class Lookup {
 			this.resultHasKey = false;
 			this.responsibleIsCrashed = false;
 		}
+		this.top.lookupCompleted(this);
 	}
 	
 	/**
@@ -75,6 +90,54 @@ public class Lookup {
 		return this.correctResult || (this.resultHasKey && this.responsibleIsCrashed);
 	}
 	
+	/**
+	 * Returns the id of the lookup operation
+	 * @return the id of the lookup operation
+	 */
+	public Integer getId() {
+		return this.id;
+	}
+	
+	/**
+	 * Returns the target key
+	 * @return the target key
+	 */
+	public Integer getKey() {
+		return this.request_key;
+	}
+	
+	/**
+	 * Returns the id of the lookup initiator
+	 * @return the id of the lookup initiator
+	 */
+	public Integer getNodeId() {
+		return this.node_req_id;
+	}
+	
+	/**
+	 * Returns the length of the path between the lookup initiator and the responsible
+	 * @return the length of the path, -1 if the lookup failed or it has not been completed
+	 */
+	public Integer getPathLength() {
+		return this.completed ? this.path_length : -1;
+	}
+	
+	/**
+	 * Returns the number of timeouts encountered during the lookup
+	 * @return the number of timeouts, 0 if the lookup failed or it has not been completed
+	 */
+	public Integer getTimeouts() {
+		return this.completed && this.num_timeouts != -1 ? this.num_timeouts : 0;
+	}
+	
+	/**
+	 * Returns the duration of the lookup in ticks
+	 * @return the duration of the lookup, -1 if it has not been completed
+	 */
+	public Double getDuration() {
+		return this.completed ? this.final_tick-this.starting_tick : -1;
+	}
+	
 	/**
 	 * Returns if the lookup has been completed
 	 * @return true if it has been completed, false otherwise
@@ -97,7 +160,7 @@ public class Lookup {
 			csv_entry += this.responsibleIsCrashed + ",";	
 			csv_entry += this.path_length + ",";	
 			csv_entry += this.num_timeouts + ",";
-			csv_entry += this.nodes_contacted + "\n";
+			csv_entry += this.nodes_contacted + ",";
 		} else {
 			csv_entry += "-1,";
 			csv_entry += false + ",";	
@@ -105,8 +168,11 @@ public class Lookup {
 			csv_entry += false + ",";	
 			csv_entry += "-1,";	
 			csv_entry += "-1,";
-			csv_entry += "-1\n";
+			csv_entry += "-1,";
 		}
+		csv_entry += this.starting_tick + ",";
+		csv_entry += this.parallel_saved + ",";
+		csv_entry += this.parallel_extra_messages + "\n";
 		return csv_entry;
 	}
 	
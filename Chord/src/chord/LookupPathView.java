@@ -0,0 +1,79 @@
+package chord;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.schedule.ISchedule;
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.space.graph.Network;
+import repast.simphony.space.graph.RepastEdge;
+
+/**
+ * This class receives the lookup hop events from the nodes and shows the current hop of each node as an edge of the network.
+ * The edge updates are coalesced and applied once per tick (i.e. once per rendered frame); in batch mode the view is disabled
+ * and the events are ignored.
+ */
+public class LookupPathView {
+	private Network<Object> network;
+	private boolean enabled;
+	private LinkedHashMap<Node, Node> pending;
+	
+	/**
+	 * Public constructor: if enabled, schedules the flush of the edge updates at the end of every tick
+	 * @param network network in which the edges are shown
+	 * @param enabled false to ignore all events (batch runs)
+	 */
+	public LookupPathView(Network<Object> network, boolean enabled) {
+		this.network = network;
+		this.enabled = enabled;
+		this.pending = new LinkedHashMap<>();
+		
+		if(this.enabled) {
+			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+			ScheduleParameters scheduleParams = ScheduleParameters.createRepeating(1, 1, ScheduleParameters.LAST_PRIORITY);
+			schedule.schedule(scheduleParams, this, "flush");
+		}
+	}
+	
+	/**
+	 * Notifies that a node is contacting another one during a lookup
+	 * @param source the node performing the lookup
+	 * @param target the contacted node
+	 */
+	public void hop(Node source, Node target) {
+		if(this.enabled) {
+			this.pending.put(source, target);
+		}
+	}
+	
+	/**
+	 * Notifies that a node has no lookup hop to show anymore
+	 * @param source the node of interest
+	 */
+	public void clear(Node source) {
+		if(this.enabled) {
+			this.pending.put(source, null);
+		}
+	}
+	
+	/**
+	 * Applies the pending edge updates: the outgoing edges of each updated node are replaced by its last hop, if any
+	 */
+	public void flush() {
+		for(Map.Entry<Node, Node> update: this.pending.entrySet()) {
+			ArrayList<RepastEdge<Object>> edges = new ArrayList<>();
+			for(RepastEdge<Object> edge: this.network.getOutEdges(update.getKey())) {
+				edges.add(edge);
+			}
+			for(RepastEdge<Object> edge: edges) {
+				this.network.removeEdge(edge);
+			}
+			if(update.getValue() != null) {
+				this.network.addEdge(update.getKey(), update.getValue());
+			}
+		}
+		this.pending.clear();
+	}
+}
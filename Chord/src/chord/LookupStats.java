@@ -0,0 +1,269 @@
+package chord;
+
+import java.util.LinkedHashMap;
+
+import repast.simphony.engine.environment.RunEnvironment;
+
+/**
+ * This class aggregates the results of the find_successor operations as they complete, in fixed-memory histograms of
+ * latency (in thousandths of tick) and path length, per type ("lookup", "init", "finger", "successors", and the key-value operations
+ * "put", "get", "delete", the keys of the multi-key lookups "batch" and the range queries "range") both for the whole run and for the
+ * current time window. Latency and correctness are known only for the lookups and the client operations, the other types record the path length only.
+ * The path length of a range query is the length of the path to the first owner plus the number of owners fetched.
+ * The percentiles of each closed window are kept as CSV rows, so that the memory does not grow with the number of lookups.
+ */
+public class LookupStats {
+	public static final String[] TYPES = {"lookup", "init", "finger", "successors", "put", "get", "delete", "batch", "range"};
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	private static final String HEADER = "window_start,type,count,failed,correct,timeouts,latency_mean,latency_p50,latency_p90,latency_p99,latency_p999,latency_max,hops_mean,hops_p50,hops_p90,hops_p99,hops_p999,hops_max\n";
+	
+	/**
+	 * Histograms and counters of a single type in a time interval
+	 */
+	private static class Entry {
+		private Histogram latency = new Histogram();
+		private Histogram hops = new Histogram();
+		private long failed = 0;
+		private long correct = 0;
+		private long timeouts = 0;
+		
+		/**
+		 * Removes all the recorded values
+		 */
+		private void reset() {
+			this.latency.reset();
+			this.hops.reset();
+			this.failed = 0;
+			this.correct = 0;
+			this.timeouts = 0;
+		}
+	}
+	
+	private double window;
+	private long current_window;
+	private long issued;
+	private LinkedHashMap<String, Entry> totals;
+	private LinkedHashMap<String, Entry> current;
+	private StringBuilder closed_windows;
+	
+	/**
+	 * Public constructor
+	 * @param window length in ticks of the time windows
+	 */
+	public LookupStats(double window) {
+		this.window = window;
+		this.current_window = 0;
+		this.issued = 0;
+		this.totals = new LinkedHashMap<>();
+		this.current = new LinkedHashMap<>();
+		for(String type: TYPES) {
+			this.totals.put(type, new Entry());
+			this.current.put(type, new Entry());
+		}
+		this.closed_windows = new StringBuilder();
+	}
+	
+	/**
+	 * Counts a new lookup
+	 */
+	public void issued() {
+		this.issued++;
+	}
+	
+	/**
+	 * Records a completed lookup
+	 * @param lookup the completed lookup
+	 */
+	public void record(Lookup lookup) {
+		this.record("lookup", lookup.getPathLength() == -1 ? -1 : lookup.getDuration(), lookup.getPathLength(), lookup.getTimeouts(), lookup.getResult());
+	}
+	
+	/**
+	 * Records a completed key-value operation
+	 * @param request the completed operation
+	 */
+	public void record(KVRequest request) {
+		this.record(request.getOperation().getType(), request.getPathLength() == -1 ? -1 : request.getDuration(), request.getPathLength(), request.getTimeouts(), request.isCorrect());
+	}
+	
+	/**
+	 * Records a completed find_successor operation
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @param latency duration in ticks, -1 if unknown
+	 * @param path_length length of the query path, -1 if the operation failed
+	 * @param num_timeouts number of timeouts encountered
+	 * @param correct true if the node found is the responsible one
+	 */
+	public void record(String type, double latency, int path_length, int num_timeouts, boolean correct) {
+		this.rollWindow();
+		Entry[] entries = {this.totals.get(type), this.current.get(type)};
+		for(Entry entry: entries) {
+			if(path_length == -1) {
+				entry.failed++;
+			} else {
+				entry.hops.record(path_length);
+				entry.timeouts += num_timeouts;
+				if(latency >= 0) {
+					entry.latency.record(Math.round(latency*1000));
+				}
+			}
+			if(correct) {
+				entry.correct++;
+			}
+		}
+	}
+	
+	/**
+	 * Closes the current window if the current tick belongs to a following one
+	 */
+	private void rollWindow() {
+		long tick_window = (long) (RunEnvironment.getInstance().getCurrentSchedule().getTickCount()/this.window);
+		if(tick_window != this.current_window) {
+			this.closeWindow();
+			this.current_window = tick_window;
+		}
+	}
+	
+	/**
+	 * Stores the summary of the current window and resets its histograms
+	 */
+	private void closeWindow() {
+		for(String type: TYPES) {
+			Entry entry = this.current.get(type);
+			if(entry.hops.getCount() > 0 || entry.failed > 0) {
+				this.closed_windows.append(toCSV(String.valueOf(this.current_window*this.window), type, entry));
+			}
+			entry.reset();
+		}
+	}
+	
+	/**
+	 * Returns a CSV row with the summary of the given entry
+	 * @param window_start first tick of the window ("all" for the whole run)
+	 * @param type type of the operations
+	 * @param entry the histograms of interest
+	 * @return a CSV row
+	 */
+	private static String toCSV(String window_start, String type, Entry entry) {
+		StringBuilder row = new StringBuilder();
+		row.append(window_start).append(',').append(type).append(',').append(entry.hops.getCount()+entry.failed).append(',').append(entry.failed).append(',').append(entry.correct).append(',').append(entry.timeouts);
+		row.append(',').append(entry.latency.getMean()/1000);
+		for(double p: PERCENTILES) {
+			row.append(',').append(entry.latency.getPercentile(p)/1000.0);
+		}
+		row.append(',').append(entry.latency.getMax()/1000.0);
+		row.append(',').append(entry.hops.getMean());
+		for(double p: PERCENTILES) {
+			row.append(',').append(entry.hops.getPercentile(p));
+		}
+		row.append(',').append(entry.hops.getMax()).append('\n');
+		return row.toString();
+	}
+	
+	/**
+	 * Returns the given percentile of the latency of the operations of the given type since the beginning of the run
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @param p the percentile, between 0 and 100
+	 * @return the latency in ticks
+	 */
+	public double getLatencyPercentile(String type, double p) {
+		return this.totals.get(type).latency.getPercentile(p)/1000.0;
+	}
+	
+	/**
+	 * Returns the given percentile of the path length of the operations of the given type since the beginning of the run
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @param p the percentile, between 0 and 100
+	 * @return the path length
+	 */
+	public long getHopsPercentile(String type, double p) {
+		return this.totals.get(type).hops.getPercentile(p);
+	}
+	
+	/**
+	 * Returns the given percentile of the latency of the operations of the given type in the current window
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @param p the percentile, between 0 and 100
+	 * @return the latency in ticks
+	 */
+	public double getWindowLatencyPercentile(String type, double p) {
+		this.rollWindow();
+		return this.current.get(type).latency.getPercentile(p)/1000.0;
+	}
+	
+	/**
+	 * Returns the given percentile of the path length of the operations of the given type in the current window
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @param p the percentile, between 0 and 100
+	 * @return the path length
+	 */
+	public long getWindowHopsPercentile(String type, double p) {
+		this.rollWindow();
+		return this.current.get(type).hops.getPercentile(p);
+	}
+	
+	/**
+	 * Returns the number of lookups issued
+	 * @return the number of lookups issued
+	 */
+	public long getIssued() {
+		return this.issued;
+	}
+	
+	/**
+	 * Returns the number of completed operations of the given type
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @return the number of completed operations
+	 */
+	public long getCompleted(String type) {
+		Entry entry = this.totals.get(type);
+		return entry.hops.getCount()+entry.failed;
+	}
+	
+	/**
+	 * Returns the number of completed operations of the given type that found the responsible node
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @return the number of correct operations
+	 */
+	public long getCorrect(String type) {
+		return this.totals.get(type).correct;
+	}
+	
+	/**
+	 * Returns the number of timeouts encountered by the completed operations of the given type
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @return the number of timeouts
+	 */
+	public long getTimeouts(String type) {
+		return this.totals.get(type).timeouts;
+	}
+	
+	/**
+	 * Returns the number of operations of the given type that failed (empty successors list)
+	 * @param type type of the operation: "init", "finger", "successors", "lookup", "put", "get", "delete", "batch" or "range"
+	 * @return the number of failed operations
+	 */
+	public long getFailed(String type) {
+		return this.totals.get(type).failed;
+	}
+	
+	/**
+	 * Returns a string in CSV format with the summary of every window followed by the summary of the whole run
+	 * @return a string in CSV format
+	 */
+	public String toCSV() {
+		this.rollWindow();
+		StringBuilder csv = new StringBuilder(HEADER);
+		csv.append(this.closed_windows);
+		for(String type: TYPES) {
+			Entry entry = this.current.get(type);
+			if(entry.hops.getCount() > 0 || entry.failed > 0) {
+				csv.append(toCSV(String.valueOf(this.current_window*this.window), type, entry));
+			}
+		}
+		for(String type: TYPES) {
+			csv.append(toCSV("all", type, this.totals.get(type)));
+		}
+		return csv.toString();
+	}
+}
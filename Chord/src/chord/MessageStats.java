@@ -0,0 +1,315 @@
+package chord;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import repast.simphony.engine.environment.RunEnvironment;
+
+/**
+ * This class keeps track of the simulated messages exchanged by the nodes, classifying them by type and
+ * counting messages and estimated bytes per node per tick
+ */
+public class MessageStats {
+
+	/**
+	 * Types of the simulated messages
+	 */
+	public enum MessageType {
+		LOOKUP(false),
+		JOIN(true),
+		FINGER_REPAIR(true),
+		SUCCESSOR_REPAIR(true),
+		STABILIZATION(true),
+		PREDECESSOR_CHECK(true),
+		NOTIFICATION(true),
+		DATA_TRANSFER(false),
+		LEAVE(true),
+		HEARTBEAT(true),
+		VALUE_TRANSFER(false),
+		BATCH_LOOKUP(false),
+		RANGE_SCAN(false),
+		LOAD_BALANCE(true),
+		KV_LOOKUP(false),
+		RANGE_LOOKUP(false);
+
+		private final boolean maintenance;
+
+		private MessageType(boolean maintenance) {
+			this.maintenance = maintenance;
+		}
+
+		/**
+		 * Returns true if the message type belongs to the ring maintenance traffic, false otherwise
+		 * @return true if the message type belongs to the ring maintenance traffic, false otherwise
+		 */
+		public boolean isMaintenance() {
+			return this.maintenance;
+		}
+
+		/**
+		 * Returns the message type associated to the given find_successor target data structure
+		 * @param target_dt target data structure: "init", "finger", "successors", "lookup", "kv" or "range"
+		 * @return the corresponding message type
+		 */
+		public static MessageType fromTarget(String target_dt) {
+			switch(target_dt) {
+				case "init":
+					return JOIN;
+				case "finger":
+					return FINGER_REPAIR;
+				case "successors":
+					return SUCCESSOR_REPAIR;
+				case "kv":
+					return KV_LOOKUP;
+				case "range":
+					return RANGE_LOOKUP;
+				default:
+					return LOOKUP;
+			}
+		}
+	}
+
+	public static final int HEADER_BYTES = 20;
+	public static final int ID_BYTES = 4;
+
+	private EnumMap<MessageType, long[]> type_totals;
+	private HashMap<Integer, long[]> node_totals;
+	private HashMap<Integer, int[]> tick_counters;
+	private long current_tick;
+	private Histogram messages_samples;
+	private Histogram bytes_samples;
+	private long succ_list_full_bytes;
+	private long succ_list_sent_bytes;
+
+	/**
+	 * Public constructor
+	 */
+	public MessageStats() {
+		this.type_totals = new EnumMap<>(MessageType.class);
+		for(MessageType type: MessageType.values()) {
+			this.type_totals.put(type, new long[2]);
+		}
+		this.node_totals = new HashMap<>();
+		this.tick_counters = new HashMap<>();
+		this.current_tick = -1;
+		this.messages_samples = new Histogram();
+		this.bytes_samples = new Histogram();
+		this.succ_list_full_bytes = 0;
+		this.succ_list_sent_bytes = 0;
+	}
+
+	/**
+	 * Returns the estimated size of a message carrying the given number of node identifiers
+	 * @param num_ids number of node identifiers in the payload
+	 * @return estimated size in bytes
+	 */
+	public static int idsMessageBytes(int num_ids) {
+		return HEADER_BYTES + num_ids*ID_BYTES;
+	}
+
+	/**
+	 * Returns the estimated size of a message carrying the given data
+	 * @param data the data transferred
+	 * @return estimated size in bytes
+	 */
+	public static int dataMessageBytes(Map<Integer, String> data) {
+		int bytes = HEADER_BYTES;
+		for(String value: data.values()) {
+			bytes += ID_BYTES + value.length();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the estimated size of a key-value message carrying the given value
+	 * @param value the value transferred, null if the message carries the key only
+	 * @return estimated size in bytes
+	 */
+	public static int valueMessageBytes(String value) {
+		return HEADER_BYTES + ID_BYTES + (value == null ? 0 : value.length());
+	}
+
+	/**
+	 * Records a message sent by the specified node in the current tick
+	 * @param type type of the message
+	 * @param sender_id id of the sending node
+	 * @param bytes estimated size of the message
+	 */
+	public void record(MessageType type, int sender_id, int bytes) {
+		this.rollTick((long) Math.floor(RunEnvironment.getInstance().getCurrentSchedule().getTickCount()));
+
+		long[] type_total = this.type_totals.get(type);
+		type_total[0]++;
+		type_total[1] += bytes;
+
+		long[] node_total = this.node_totals.get(sender_id);
+		if(node_total == null) {
+			node_total = new long[2];
+			this.node_totals.put(sender_id, node_total);
+		}
+		node_total[0]++;
+		node_total[1] += bytes;
+
+		int[] tick_counter = this.tick_counters.get(sender_id);
+		if(tick_counter == null) {
+			tick_counter = new int[2];
+			this.tick_counters.put(sender_id, tick_counter);
+		}
+		tick_counter[0]++;
+		tick_counter[1] += bytes;
+	}
+
+	/**
+	 * Records the size of a successors list sent in a stabilization response, compared with the size of the whole list
+	 * @param full_bytes estimated size of the response carrying the whole list
+	 * @param sent_bytes estimated size of the response actually sent
+	 */
+	public void recordSuccessorList(int full_bytes, int sent_bytes) {
+		this.succ_list_full_bytes += full_bytes;
+		this.succ_list_sent_bytes += sent_bytes;
+	}
+
+	/**
+	 * Returns the estimated bytes of the successors lists sent in stabilization responses
+	 * @return array containing the bytes sent and the bytes needed to send the whole lists
+	 */
+	public long[] getSuccessorListBytes() {
+		return new long[] {this.succ_list_sent_bytes, this.succ_list_full_bytes};
+	}
+
+	/**
+	 * Moves the per node counters of the previous tick into the samples used for the percentiles
+	 * @param tick the current (integer) tick
+	 */
+	private void rollTick(long tick) {
+		if(tick != this.current_tick) {
+			for(int[] tick_counter: this.tick_counters.values()) {
+				this.messages_samples.record(tick_counter[0]);
+				this.bytes_samples.record(tick_counter[1]);
+			}
+			this.tick_counters.clear();
+			this.current_tick = tick;
+		}
+	}
+
+	/**
+	 * Returns the total number of messages sent
+	 * @return the total number of messages sent
+	 */
+	public long getTotalMessages() {
+		long total = 0;
+		for(long[] type_total: this.type_totals.values()) {
+			total += type_total[0];
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the total number of estimated bytes sent
+	 * @return the total number of estimated bytes sent
+	 */
+	public long getTotalBytes() {
+		long total = 0;
+		for(long[] type_total: this.type_totals.values()) {
+			total += type_total[1];
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the number of messages of the given type
+	 * @param type type of interest
+	 * @return the number of messages of the given type
+	 */
+	public long getMessages(MessageType type) {
+		return this.type_totals.get(type)[0];
+	}
+
+	/**
+	 * Returns the estimated bytes of the messages of the given type
+	 * @param type type of interest
+	 * @return the estimated bytes of the messages of the given type
+	 */
+	public long getBytes(MessageType type) {
+		return this.type_totals.get(type)[1];
+	}
+
+	/**
+	 * Returns the number of messages belonging to the ring maintenance (stabilization, repairs, joins, leaves)
+	 * @return the number of maintenance messages
+	 */
+	public long getMaintenanceMessages() {
+		long total = 0;
+		for(MessageType type: MessageType.values()) {
+			if(type.isMaintenance()) {
+				total += this.getMessages(type);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the number of messages sent by the specified node
+	 * @param node_id id of the node of interest
+	 * @return the number of messages sent by the node
+	 */
+	public long getNodeMessages(int node_id) {
+		long[] node_total = this.node_totals.get(node_id);
+		return node_total == null ? 0 : node_total[0];
+	}
+
+	/**
+	 * Returns the estimated bytes sent by the specified node
+	 * @param node_id id of the node of interest
+	 * @return the estimated bytes sent by the node
+	 */
+	public long getNodeBytes(int node_id) {
+		long[] node_total = this.node_totals.get(node_id);
+		return node_total == null ? 0 : node_total[1];
+	}
+
+	/**
+	 * Returns the given percentile of the number of messages sent per node per tick (only nodes sending at least one message are considered), up to the histogram resolution
+	 * @param percentile percentile in [0,100]
+	 * @return the percentile value, 0 if no messages have been sent
+	 */
+	public int getMessagesPercentile(double percentile) {
+		Histogram samples = new Histogram(this.messages_samples);
+		for(int[] tick_counter: this.tick_counters.values()) {
+			samples.record(tick_counter[0]);
+		}
+		return (int) samples.getPercentile(percentile);
+	}
+
+	/**
+	 * Returns the given percentile of the estimated bytes sent per node per tick (only nodes sending at least one message are considered), up to the histogram resolution
+	 * @param percentile percentile in [0,100]
+	 * @return the percentile value, 0 if no messages have been sent
+	 */
+	public int getBytesPercentile(double percentile) {
+		Histogram samples = new Histogram(this.bytes_samples);
+		for(int[] tick_counter: this.tick_counters.values()) {
+			samples.record(tick_counter[1]);
+		}
+		return (int) samples.getPercentile(percentile);
+	}
+
+	/**
+	 * Returns a string in CSV format containing the totals per message type followed by the per node per tick percentiles
+	 * @return a string in CSV format containing the message statistics
+	 */
+	public String toCSV() {
+		String csv = "type,messages,bytes\n";
+		for(MessageType type: MessageType.values()) {
+			csv += type.name().toLowerCase() + "," + this.getMessages(type) + "," + this.getBytes(type) + "\n";
+		}
+		csv += "total," + this.getTotalMessages() + "," + this.getTotalBytes() + "\n";
+		csv += "\npercentile,messages_per_node_tick,bytes_per_node_tick\n";
+		double[] percentiles = {50, 90, 99, 100};
+		for(double p: percentiles) {
+			csv += p + "," + this.getMessagesPercentile(p) + "," + this.getBytesPercentile(p) + "\n";
+		}
+		return csv;
+	}
+}
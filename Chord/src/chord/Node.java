@@ -1,29 +1,45 @@
 package chord;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NavigableMap;
 import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 import repast.simphony.engine.environment.RunEnvironment;
 import repast.simphony.engine.schedule.ISchedule;
 import repast.simphony.engine.schedule.ScheduleParameters;
-import repast.simphony.space.graph.Network;
-import repast.simphony.space.graph.RepastEdge;
 import repast.simphony.util.collections.Pair;
 
 /**
  * This class defines the behavior of the agents in the simulation 
  */
 public class Node implements Comparable<Node>{
+	private static final int SUCC_HISTORY = 4;
+	
 	private TopologyBuilder top;
-	private Network<Object> viewNet;
+	private LookupPathView path_view;
 	private Random rnd;
 	private int hash_size;
-	private double mean_packet_delay = 50;
-	private double maximum_allowed_delay = 500;
+	private int finger_base;
+	private int finger_size;
+	private int lookup_parallelism;
+	private double mean_packet_delay;
+	private double maximum_allowed_delay;
+	private RttEstimator rtt;
+	private FailureDetector failure_detector;
+	private double detector_interval;
+	private boolean probe_pending;
 
 	private Integer id;
+	private Host host;
+	private long requests_served;
 	private double x;
 	private double y;
 	
@@ -33,49 +49,64 @@ public class Node implements Comparable<Node>{
 	
 	private double crash_pr;
 	private double crash_scheduling_interval;
+	private boolean crash_pending;
 	private double recovery_interval;
+	private double recovery_tick;
 	
 	private FingerTable finger;
-	private ArrayList<Node> successors;
+	private SuccessorList successors;
 	private int successors_size;
 	private Node predecessor;
 	
+	private boolean delta_successors;
+	private int succ_version;
+	private SuccessorList succ_advertised;
+	private LinkedHashMap<Integer, SuccessorList> succ_history;
+	private Node stab_peer;
+	private int stab_peer_version;
+	private SuccessorList stab_peer_list;
+	private SuccessorList stab_built;
+	
 	private int next;
 	private Node last_stabilized_succ;
 	
 	private double stab_offset;
 	private int stab_amplitude;
 	private boolean stabphase;
+	private boolean multi_finger_repair;
+	private boolean fast_join;
 	
-	private HashMap<Integer, String> data;
-	private ArrayList<Lookup> lookup_table;
+	private TreeMap<Integer, String> data;
+	private LinkedHashMap<Integer, Lookup> lookup_table;
+	private HashMap<Integer, KVRequest> kv_requests;
+	private int next_kv_request;
+	private HashMap<Integer, RangeQuery> range_queries;
+	private int next_range_query;
 	private Integer lookup_key;
+	private MessageStats message_stats;
 	
 	/**
 	 * Public constructor
 	 * @param top reference to the TopologyBuilder
-	 * @param viewNet network
+	 * @param path_view observer of the lookup hops
 	 * @param rnd random number generator
-	 * @param hash_size number of bits of the hash used for identifiers
 	 * @param id node id
 	 * @param x x coordinate in the continuous space
 	 * @param y y coordinate in the continuous space
-	 * @param crash_pr probability of node crash
-	 * @param crash_scheduling_interval interval for probabilistic crash scheduling
-	 * @param recovery_interval number of ticks needed for recovery
-	 * @param successors_size size of the successors list
-	 * @param stab_offset minimum offset between stabilizations
-	 * @param stab_amplitude maximum interval to be added to the offset
-	 * @param lookup_table reference to the list of Lookups instances
-	 */
-	public Node(TopologyBuilder top, Network<Object> viewNet, Random rnd, int hash_size, int id, double x, double y, double crash_pr, double crash_scheduling_interval, double recovery_interval, int successors_size, double stab_offset, int stab_amplitude, ArrayList<Lookup> lookup_table) {
+	 * @param lookup_table reference to the Lookups instances, indexed by id
+	 * @param message_stats reference to the message accounting
+	 * @param config protocol settings shared by all the nodes
+	 */
+	public Node(TopologyBuilder top, LookupPathView path_view, Random rnd, int id, double x, double y, LinkedHashMap<Integer, Lookup> lookup_table, MessageStats message_stats, NodeConfig config) {
 		this.top = top;
 		
-		this.viewNet = viewNet;
+		this.path_view = path_view;
 		this.rnd = rnd;
-		this.hash_size = hash_size;
+		this.hash_size = config.getHashSize();
 		
 		this.id = id;
+		this.host = null;
+		this.requests_served = 0;
 		this.x = x;
 		this.y = y;
 		
@@ -83,25 +114,48 @@ public class Node implements Comparable<Node>{
 		this.subscribed = false;
 		this.crashed = false;
 		
-		this.crash_pr = crash_pr;
-		this.crash_scheduling_interval = crash_scheduling_interval;
-		this.recovery_interval = recovery_interval;
+		this.crash_pr = config.getCrashPr();
+		this.crash_scheduling_interval = config.getCrashSchedulingInterval();
+		this.crash_pending = false;
+		this.recovery_interval = config.getRecoveryInterval();
+		this.recovery_tick = 0;
 		
-		this.finger = new FingerTable(hash_size);
-		this.successors = new ArrayList<>();
-		this.successors_size = successors_size;
+		this.finger_base = config.getFingerBase();
+		this.lookup_parallelism = config.getLookupParallelism();
+		this.mean_packet_delay = config.getMeanPacketDelay();
+		this.maximum_allowed_delay = config.getMaximumAllowedDelay();
+		this.finger_size = FingerTable.size(this.hash_size, this.finger_base);
+		this.finger = new FingerTable(this.finger_size);
+		this.failure_detector = config.createFailureDetector();
+		this.detector_interval = config.getDetectorInterval();
+		this.probe_pending = false;
+		this.successors = SuccessorList.empty();
+		this.successors_size = config.getSuccessorsSize();
+		this.rtt = new RttEstimator(config.isAdaptiveTimeouts(), 2*(this.finger_size+this.successors_size), config.getMinTimeout(), this.maximum_allowed_delay);
 		this.resetPredecessor();
+		this.delta_successors = config.isDeltaSuccessors();
+		this.succ_version = 0;
+		this.succ_advertised = SuccessorList.empty();
+		this.succ_history = new LinkedHashMap<>();
+		this.clearStabPeer();
 		
 		this.next = 2;
 		this.last_stabilized_succ = null;
 		
-		this.stab_offset = stab_offset;
-		this.stab_amplitude = stab_amplitude+1;
+		this.stab_offset = config.getStabOffset();
+		this.stab_amplitude = config.getStabAmplitude()+1;
 		this.stabphase = true;
+		this.multi_finger_repair = config.isMultiFingerRepair();
+		this.fast_join = config.isFastJoin();
 		
-		this.data = new HashMap<>();
+		this.data = new TreeMap<>();
 		this.lookup_table = lookup_table;
+		this.kv_requests = new HashMap<>();
+		this.next_kv_request = 0;
+		this.range_queries = new HashMap<>();
+		this.next_range_query = 0;
 		this.lookup_key = null;
+		this.message_stats = message_stats;
 	}
 	
 	/**
@@ -110,16 +164,14 @@ public class Node implements Comparable<Node>{
 	public void create() {
 		this.resetPredecessor();
 		this.finger.setEntry(1, this);
-		this.successors.add(this);
+		this.successors = this.successors.toBuilder(1).add(this).build();
 		
 		this.initialized = true;
 		this.subscribed = true;
 		
 		this.schedule_stabilization();
 		
-		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
-		ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+this.crash_scheduling_interval);
-		schedule.schedule(scheduleParams, this, "nodeCrash");
+		this.scheduleNodeCrash();
 	}
 	
 	/**
@@ -134,6 +186,60 @@ public class Node implements Comparable<Node>{
 		this.find_successor_step(node, prev_contacted_nodes, this.id, "init", 1, 0, 0, 0);
 	}
 	
+	/**
+	 * Joins the ring as part of a bulk join, with the successors and the predecessor computed by the coordinator;
+	 * the predecessor is notified of the new successor
+	 * @param successors the successors of the current node
+	 * @param predecessor the predecessor of the current node
+	 */
+	public void bulkJoin(ArrayList<Node> successors, Node predecessor) {
+		this.resetPredecessor();
+		this.successors = SuccessorList.of(successors);
+		this.finger.setEntry(1, successors.get(0));
+		this.subscribed = true;
+		this.initialized = true;
+		this.setPredecessor(predecessor);
+		
+		this.schedule_stabilization();
+		
+		this.scheduleNodeCrash();
+	}
+	
+	/**
+	 * Hands the data over to the nodes that joined (bulk join) between the current node and its previous predecessor
+	 * @param joined the joined nodes, sorted in ring order; the last one is the new predecessor
+	 */
+	public void bulkHandoff(ArrayList<Node> joined) {
+		if(this.subscribed && !this.crashed) {
+			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+			Node last = joined.get(joined.size()-1);
+			TreeMap<Integer, String> moved = this.transferDataUpToKey(last.getId());
+			for(int i=joined.size()-1; i >= 0 && !moved.isEmpty(); i--) {
+				Node node = joined.get(i);
+				TreeMap<Integer, String> part = new TreeMap<>();
+				if(i == 0) {
+					part.putAll(moved);
+				} else {
+					int lower_bound = joined.get(i-1).getId();
+					for(Integer key: moved.keySet()) {
+						if(Utils.belongsToInterval(key, lower_bound, node.getId())) {
+							part.put(key, moved.get(key));
+						}
+					}
+				}
+				moved.keySet().removeAll(part.keySet());
+				if(!part.isEmpty()) {
+					this.message_stats.record(MessageStats.MessageType.DATA_TRANSFER, this.id, MessageStats.dataMessageBytes(part));
+					ProtocolEvents.dataHandoff(this.id, node.getId(), part.size());
+					ScheduleParameters scheduleParameters = ScheduleParameters
+							.createOneTime(schedule.getTickCount() + Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay)/1000);
+					schedule.schedule(scheduleParameters, node, "newData", part);
+				}
+			}
+			this.predecessor = last;
+		}
+	}
+	
 	/**
 	 * Performs the initialization, setting the successor and scheduling the stabilization
 	 * @param successor successor node
@@ -141,21 +247,19 @@ public class Node implements Comparable<Node>{
 	public void initSuccessor(Node successor) {
 		this.resetPredecessor();
 		this.finger.setEntry(1, successor);
-		this.successors.add(successor);
+		this.successors = this.successors.toBuilder(1).add(successor).build();
 		this.subscribed = true;
 		this.initialized = true;
 		
 		this.schedule_stabilization();
 		
-		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
-		ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+this.crash_scheduling_interval);
-		schedule.schedule(scheduleParams, this, "nodeCrash");
+		this.scheduleNodeCrash();
 	}
 	
 	/**
 	 * Performs the lookup of a key in the ring
 	 * @param key target key
-	 * @param position index of the current lookup in the lookup_table
+	 * @param position id of the current lookup in the lookup_table
 	 */
 	public void lookup(int key, int position) {
 		this.lookup_key = key;
@@ -166,15 +270,482 @@ public class Node implements Comparable<Node>{
 		}
 	}
 	
+	/**
+	 * Performs the lookup of several keys at once: the keys are sorted and routed as groups, a group being split only where
+	 * the next hops of its keys diverge, so that keys in nearby arcs share the messages of the common part of their paths
+	 * @param keys target keys
+	 * @return the future of the lookup, completed when the owners of all the keys are known
+	 */
+	public CompletableFuture<BatchLookup> lookupBatch(int[] keys) {
+		BatchLookup batch = new BatchLookup(keys, this.id, RunEnvironment.getInstance().getCurrentSchedule().getTickCount(), this.top);
+		if(this.successors.isEmpty()) {
+			for(int key: batch.getKeys()) {
+				batch.setResult(key, null, -1, -1);
+			}
+			this.forcedLeaving();
+			return batch.getFuture();
+		}
+		
+		ArrayList<Integer> local = new ArrayList<>();
+		ArrayList<Integer> direct = new ArrayList<>();
+		LinkedHashMap<Node, ArrayList<Integer>> groups = new LinkedHashMap<>();
+		for(int key: batch.getKeys()) {
+			if(key == this.id) {
+				local.add(key);
+			} else if(Utils.belongsToInterval(key, this.id, this.successors.get(0).getId())) {
+				direct.add(key);
+			} else {
+				groups.computeIfAbsent(this.closest_preceding_node(key), node -> new ArrayList<>()).add(key);
+			}
+		}
+		this.resolveBatch(batch, this, local, 0, 0);
+		this.resolveBatch(batch, this.successors.get(0), direct, 1, 0);
+		for(Node target: groups.keySet()) {
+			ArrayList<Node> prev_contacted_nodes = new ArrayList<>();
+			prev_contacted_nodes.add(this);
+			this.batch_step(batch, target, groups.get(target), prev_contacted_nodes, 0, 0);
+		}
+		return batch.getFuture();
+	}
+	
+	/**
+	 * Performs an iterative step of a multi-key lookup, asking the given node for the next hop of every key of the group
+	 * with a single message
+	 * @param batch the multi-key lookup
+	 * @param target_node node to ask for the given keys
+	 * @param keys keys of the group, sorted
+	 * @param prev_contacted_nodes list of previously contacted nodes
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 */
+	public void batch_step(BatchLookup batch, Node target_node, ArrayList<Integer> keys, ArrayList<Node> prev_contacted_nodes, int path_length, int num_timeouts) {
+		if(this.subscribed && !this.crashed) {
+			ArrayList<Pair<Node, Boolean>> responses = target_node.processBatchSuccRequest(keys);
+			
+			this.message_stats.record(MessageStats.MessageType.BATCH_LOOKUP, this.id, MessageStats.idsMessageBytes(keys.size()));
+			if(!responses.isEmpty()) {
+				this.message_stats.record(MessageStats.MessageType.BATCH_LOOKUP, target_node.getId(), MessageStats.idsMessageBytes(keys.size())+keys.size());
+			}
+			
+			double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			double delay_tot = responses.isEmpty() ? this.rtt.timeout(target_node) : delay_req+delay_resp;
+			if(!responses.isEmpty() && this.rtt.isLate(target_node, delay_tot)) { //spurious timeout
+				responses = new ArrayList<>();
+				delay_tot = this.rtt.timeout(target_node);
+			}
+			if(!responses.isEmpty()) {
+				this.responseFrom(target_node, delay_tot);
+			}
+			
+			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+			ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + delay_tot/1000);
+			schedule.schedule(scheduleParameters, this, "processBatchSuccResponse", batch, target_node, keys, responses, prev_contacted_nodes, path_length, num_timeouts);
+		}
+	}
+	
+	/**
+	 * Processes a successor request for several keys
+	 * @param keys ids of interest
+	 * @return the answer for each key (see processSuccRequest), empty if the current node is not subscribed, crashed or without successors
+	 */
+	public ArrayList<Pair<Node, Boolean>> processBatchSuccRequest(ArrayList<Integer> keys) {
+		ArrayList<Pair<Node, Boolean>> responses = new ArrayList<>();
+		for(int key: keys) {
+			Pair<Node, Boolean> response = this.processSuccRequest(key);
+			if(response.getFirst() == null) {
+				return new ArrayList<>();
+			}
+			responses.add(response);
+		}
+		return responses;
+	}
+	
+	/**
+	 * Processes the response to a multi-key successor request: the keys whose responsible is known are resolved, the others are
+	 * grouped by next hop. If the contacted node did not answer, the next hops are asked to the previous node of the path as in processSuccResponse
+	 * @param batch the multi-key lookup
+	 * @param source contacted node
+	 * @param keys keys of the group, sorted
+	 * @param responses the answer for each key, empty if the contacted node did not answer
+	 * @param prev_contacted_nodes list of previously contacted nodes
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 */
+	public void processBatchSuccResponse(BatchLookup batch, Node source, ArrayList<Integer> keys, ArrayList<Pair<Node, Boolean>> responses, ArrayList<Node> prev_contacted_nodes, int path_length, int num_timeouts) {
+		if(this.subscribed && !this.crashed) {
+			if(responses.isEmpty()) {
+				Node last_in_list = prev_contacted_nodes.get(prev_contacted_nodes.size()-1);
+				ArrayList<Integer> orphans = new ArrayList<>();
+				LinkedHashMap<Node, ArrayList<Integer>> groups = new LinkedHashMap<>();
+				for(int key: keys) {
+					Node prev_successor = last_in_list.getPrevSuccessor(source, key);
+					if(prev_successor == null) {
+						orphans.add(key);
+					} else {
+						groups.computeIfAbsent(prev_successor, node -> new ArrayList<>()).add(key);
+					}
+				}
+				
+				if(!orphans.isEmpty()) {
+					if(prev_contacted_nodes.size() == 1) {
+						System.err.println("Error, no successor available for node "+last_in_list.getId()+"!");
+						for(int key: orphans) {
+							batch.setResult(key, null, -1, -1);
+						}
+					} else {
+						ArrayList<Node> path = new ArrayList<>(prev_contacted_nodes);
+						Node dead = path.remove(path.size()-1);
+						ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+						ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + this.rtt.timeout(dead)/1000);
+						schedule.schedule(scheduleParameters, this, "processBatchSuccResponse", batch, dead, orphans, new ArrayList<Pair<Node, Boolean>>(), path, path_length-1, num_timeouts+1);
+					}
+				}
+				for(Node prev_successor: groups.keySet()) {
+					ArrayList<Integer> group = groups.get(prev_successor);
+					if(prev_successor.equals(this)) {
+						this.resolveBatch(batch, this.successors.get(0), group, path_length+1, num_timeouts+1);
+					} else if(last_in_list.equals(this)) {
+						this.batch_step(batch, prev_successor, group, new ArrayList<>(prev_contacted_nodes), path_length, num_timeouts+1);
+					} else {
+						this.message_stats.record(MessageStats.MessageType.BATCH_LOOKUP, this.id, MessageStats.idsMessageBytes(group.size()+1));
+						this.message_stats.record(MessageStats.MessageType.BATCH_LOOKUP, last_in_list.getId(), MessageStats.idsMessageBytes(group.size()));
+						
+						double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+						double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+						ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+						ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + (delay_req+delay_resp)/1000);
+						schedule.schedule(scheduleParameters, this, "batch_step", batch, prev_successor, group, new ArrayList<>(prev_contacted_nodes), path_length, num_timeouts+1);
+					}
+				}
+			} else {
+				LinkedHashMap<Node, ArrayList<Integer>> owners = new LinkedHashMap<>();
+				LinkedHashMap<Node, ArrayList<Integer>> next_hops = new LinkedHashMap<>();
+				for(int i=0; i < keys.size(); i++) {
+					Pair<Node, Boolean> response = responses.get(i);
+					(response.getSecond() ? owners : next_hops).computeIfAbsent(response.getFirst(), node -> new ArrayList<>()).add(keys.get(i));
+				}
+				for(Node owner: owners.keySet()) {
+					this.resolveBatch(batch, owner, owners.get(owner), path_length+2, num_timeouts);
+				}
+				for(Node next_hop: next_hops.keySet()) {
+					ArrayList<Node> path = new ArrayList<>(prev_contacted_nodes);
+					path.add(source);
+					this.batch_step(batch, next_hop, next_hops.get(next_hop), path, path_length+1, num_timeouts);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Contacts the responsible for a group of keys of a multi-key lookup with a single message; the keys are resolved when the answer is received
+	 * @param batch the multi-key lookup
+	 * @param owner reference to the responsible for the keys
+	 * @param keys keys of the group
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 */
+	private void resolveBatch(BatchLookup batch, Node owner, ArrayList<Integer> keys, int path_length, int num_timeouts) {
+		if(keys.isEmpty()) {
+			return;
+		}
+		if(owner.equals(this)) {
+			this.completeBatch(batch, owner, keys, path_length, num_timeouts);
+		} else {
+			this.message_stats.record(MessageStats.MessageType.BATCH_LOOKUP, this.id, MessageStats.idsMessageBytes(keys.size()));
+			this.message_stats.record(MessageStats.MessageType.BATCH_LOOKUP, owner.getId(), MessageStats.idsMessageBytes(keys.size()));
+			
+			double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+			ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + (delay_req+delay_resp)/1000);
+			schedule.schedule(scheduleParameters, this, "completeBatch", batch, owner, keys, path_length, num_timeouts);
+		}
+	}
+	
+	/**
+	 * Sets the owner of a group of keys of a multi-key lookup
+	 * @param batch the multi-key lookup
+	 * @param owner reference to the responsible for the keys
+	 * @param keys keys of the group
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 */
+	public void completeBatch(BatchLookup batch, Node owner, ArrayList<Integer> keys, int path_length, int num_timeouts) {
+		for(int key: keys) {
+			batch.setResult(key, owner, path_length, num_timeouts);
+		}
+	}
+	
+	/**
+	 * Collects the stored keys in the identifier range [from, to] (wrapping around the ring if from > to): the owner of from is
+	 * found through find_successor (target "range"), then the following owners are fetched along the successors lists, with at
+	 * most fanout fetches in flight so that the successor fetches are pipelined
+	 * @param from first key of the range
+	 * @param to last key of the range
+	 * @param fanout maximum number of owners fetched concurrently
+	 * @return the future of the query, completed when the scan is over (as failed if the initiator crashes or leaves in the meantime)
+	 */
+	public CompletableFuture<RangeQuery> rangeQuery(int from, int to, int fanout) {
+		RangeQuery query = new RangeQuery(from, to, 1 << this.hash_size, fanout, this.id, RunEnvironment.getInstance().getCurrentSchedule().getTickCount(), this.top);
+		int position = this.next_range_query++;
+		this.range_queries.put(position, query);
+		if(this.id == from) {
+			this.setResult(this, "range", position, 0, 0, 0);
+		} else {
+			this.find_successor(from, "range", position);
+		}
+		return query.getFuture();
+	}
+	
+	/**
+	 * Sends the fetches allowed by the fan-out of a range query, completing it when the scan is over
+	 * @param query the range query
+	 */
+	private void scanRange(RangeQuery query) {
+		Node owner = query.nextFetch();
+		while(owner != null) {
+			this.fetchRange(query, owner);
+			owner = query.nextFetch();
+		}
+		if(query.isOver() && !query.isComplete()) {
+			query.complete(false);
+		}
+	}
+	
+	/**
+	 * Asks an owner for its keys in the range of a query and for its successors list
+	 * @param query the range query
+	 * @param owner the node to fetch
+	 */
+	private void fetchRange(RangeQuery query, Node owner) {
+		if(owner.equals(this)) {
+			query.fetched(this.getDataInRange(query.getFrom(), query.getTo()), this.successors);
+			return;
+		}
+		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+		this.message_stats.record(MessageStats.MessageType.RANGE_SCAN, this.id, MessageStats.idsMessageBytes(2));
+		boolean answered = false;
+		if(owner.subscribed && !owner.crashed) {
+			TreeMap<Integer, String> data = owner.getDataInRange(query.getFrom(), query.getTo());
+			SuccessorList successors = owner.successors;
+			this.message_stats.record(MessageStats.MessageType.RANGE_SCAN, owner.getId(), MessageStats.dataMessageBytes(data)+successors.size()*MessageStats.ID_BYTES);
+			
+			double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			if(!this.rtt.isLate(owner, delay_req+delay_resp)) { //otherwise spurious timeout
+				answered = true;
+				this.responseFrom(owner, delay_req+delay_resp);
+				ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + (delay_req+delay_resp)/1000);
+				schedule.schedule(scheduleParameters, this, "processRangeResponse", query, data, successors);
+			}
+		}
+		if(!answered) {
+			ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + this.rtt.timeout(owner)/1000);
+			schedule.schedule(scheduleParameters, this, "processRangeTimeout", query);
+		}
+	}
+	
+	/**
+	 * Processes the answer of an owner fetched by a range query
+	 * @param query the range query
+	 * @param data the keys of the owner in the range
+	 * @param successors the successors list of the owner
+	 */
+	public void processRangeResponse(RangeQuery query, TreeMap<Integer, String> data, SuccessorList successors) {
+		if(this.subscribed && !this.crashed) {
+			query.fetched(data, successors);
+			this.scanRange(query);
+		} else { //the initiator is no longer there to continue the scan
+			query.complete(true);
+		}
+	}
+	
+	/**
+	 * Processes a fetch of a range query whose owner did not answer
+	 * @param query the range query
+	 */
+	public void processRangeTimeout(RangeQuery query) {
+		if(this.subscribed && !this.crashed) {
+			query.timedOut();
+			this.scanRange(query);
+		} else {
+			query.complete(true);
+		}
+	}
+	
+	/**
+	 * Stores a value in the ring
+	 * @param key target key
+	 * @param value value to store
+	 * @return the future of the operation
+	 */
+	public CompletableFuture<KVRequest> put(int key, String value) {
+		return this.kvRequest(KVRequest.Operation.PUT, key, value);
+	}
+	
+	/**
+	 * Reads a value from the ring
+	 * @param key target key
+	 * @return the future of the operation, whose result is the value read (null if the key is not stored)
+	 */
+	public CompletableFuture<KVRequest> get(int key) {
+		return this.kvRequest(KVRequest.Operation.GET, key, null);
+	}
+	
+	/**
+	 * Removes a value from the ring
+	 * @param key target key
+	 * @return the future of the operation, whose result is the value removed (null if the key is not stored)
+	 */
+	public CompletableFuture<KVRequest> delete(int key) {
+		return this.kvRequest(KVRequest.Operation.DELETE, key, null);
+	}
+	
+	/**
+	 * Starts a key-value operation: the responsible is found through find_successor (target "kv"), then the
+	 * operation is sent to it. If the client crashes or leaves in the meantime, the operation fails (the future is completed
+	 * with a result that is not served, see KVRequest.isServed)
+	 * @param operation type of the operation
+	 * @param key target key
+	 * @param value value to store (put only)
+	 * @return the future of the operation
+	 */
+	private CompletableFuture<KVRequest> kvRequest(KVRequest.Operation operation, int key, String value) {
+		KVRequest request = new KVRequest(operation, key, value, this.id, RunEnvironment.getInstance().getCurrentSchedule().getTickCount(), this.top);
+		int position = this.next_kv_request++;
+		this.kv_requests.put(position, request);
+		if(this.id == key) {
+			this.setResult(this, "kv", position, 0, 0, 0);
+		} else {
+			this.find_successor(key, "kv", position);
+		}
+		return request.getFuture();
+	}
+	
+	/**
+	 * Sends a key-value operation to the node found by find_successor; if the node is crashed the client detects it after the timeout
+	 * @param request the key-value operation
+	 * @param owner the node found by find_successor
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 */
+	private void sendKVRequest(KVRequest request, Node owner, int path_length, int num_timeouts) {
+		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+		if(owner.equals(this)) {
+			this.processKVResponse(request, this, path_length, num_timeouts, this.applyKVRequest(request));
+			return;
+		}
+		this.message_stats.record(MessageStats.MessageType.VALUE_TRANSFER, this.id, MessageStats.valueMessageBytes(request.getValue()));
+		if(owner.subscribed && !owner.crashed) {
+			double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + delay_req/1000);
+			schedule.schedule(scheduleParameters, owner, "processKVRequest", request, this, path_length, num_timeouts, delay_req);
+		} else {
+			ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + this.rtt.timeout(owner)/1000);
+			schedule.schedule(scheduleParameters, this, "processKVTimeout", request, num_timeouts+1);
+		}
+	}
+	
+	/**
+	 * Serves a key-value operation sent by a client and schedules the response
+	 * @param request the key-value operation
+	 * @param source the client node
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 * @param delay_req delay of the request (ms)
+	 */
+	public void processKVRequest(KVRequest request, Node source, int path_length, int num_timeouts, double delay_req) {
+		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+		if(this.subscribed && !this.crashed) {
+			this.requests_served++;
+			Pair<Boolean, String> result = this.applyKVRequest(request);
+			this.message_stats.record(MessageStats.MessageType.VALUE_TRANSFER, this.id, MessageStats.valueMessageBytes(result.getSecond()));
+			double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			if(source.rtt.isLate(this, delay_req+delay_resp)) { //spurious timeout, the operation has been applied but the client gives up
+				ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + Math.max(source.rtt.timeout(this)-delay_req, 0)/1000);
+				schedule.schedule(scheduleParameters, source, "processKVTimeout", request, num_timeouts+1);
+				return;
+			}
+			source.responseFrom(this, delay_req+delay_resp);
+			ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + delay_resp/1000);
+			schedule.schedule(scheduleParameters, source, "processKVResponse", request, this, path_length, num_timeouts, result);
+		} else {
+			ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + Math.max(source.rtt.timeout(this)-delay_req, 0)/1000);
+			schedule.schedule(scheduleParameters, source, "processKVTimeout", request, num_timeouts+1);
+		}
+	}
+	
+	/**
+	 * Applies a key-value operation to the local data
+	 * @param request the key-value operation
+	 * @return pair (Boolean, String): the first element defines if the key was stored, the second one is the value read or removed
+	 */
+	private Pair<Boolean, String> applyKVRequest(KVRequest request) {
+		boolean found = this.data.containsKey(request.getKey());
+		String result = null;
+		switch(request.getOperation()) {
+			case PUT:
+				this.data.put(request.getKey(), request.getValue());
+				break;
+			case GET:
+				result = this.data.get(request.getKey());
+				break;
+			case DELETE:
+				result = this.data.remove(request.getKey());
+				break;
+		}
+		return new Pair<Boolean, String>(found, result);
+	}
+	
+	/**
+	 * Completes a key-value operation when its response is received
+	 * @param request the key-value operation
+	 * @param owner the node that served the operation
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 * @param result pair (found, value) returned by the node
+	 */
+	public void processKVResponse(KVRequest request, Node owner, int path_length, int num_timeouts, Pair<Boolean, String> result) {
+		if(this.subscribed && !this.crashed) {
+			request.setResult(owner, path_length, num_timeouts, result.getFirst(), result.getSecond());
+		} else { //the client is no longer there to receive the response
+			request.setResult(null, -1, num_timeouts, false, null);
+		}
+	}
+	
+	/**
+	 * Fails a key-value operation whose destination did not answer
+	 * @param request the key-value operation
+	 * @param num_timeouts number of timeouts experienced
+	 */
+	public void processKVTimeout(KVRequest request, int num_timeouts) {
+		request.setResult(null, -1, num_timeouts, false, null);
+	}
+	
+	/**
+	 * Fails the operations and the range queries issued by the node whose first owner is still being looked up, when the node crashes or leaves
+	 */
+	private void failPendingRequests() {
+		for(KVRequest request: this.kv_requests.values()) {
+			request.setResult(null, -1, 0, false, null);
+		}
+		this.kv_requests.clear();
+		for(RangeQuery query: this.range_queries.values()) {
+			query.complete(true);
+		}
+		this.range_queries.clear();
+	}
+	
 	/**
 	 * Looks for the node responsible for the given identifier 
 	 * @param id id of interest
-	 * @param target_dt target data structure: "init", "finger", "successors" or "lookup"
+	 * @param target_dt target data structure: "init", "finger", "successors", "lookup", "kv" or "range"
 	 * @param position index in the target data structure
 	 */
 	public void find_successor(int id, String target_dt, int position) {
 		if (this.successors.isEmpty()) {
-			if (target_dt == "lookup") {
+			if (target_dt.equals("lookup") || target_dt.equals("kv") || target_dt.equals("range")) {
 				setResult(this, target_dt, position, -1, -1, -1);
 			}
 			this.forcedLeaving();
@@ -222,6 +793,41 @@ public class Node implements Comparable<Node>{
 		return candidate;
 	}
 	
+	/**
+	 * Returns the nodes in finger and successors preceding the given id, sorted by increasing distance from it
+	 * @param target_id id of interest
+	 * @param count maximum number of nodes returned
+	 * @return at most count distinct nodes preceding the given id
+	 */
+	public ArrayList<Node> closest_preceding_nodes(int target_id, int count) {
+		ArrayList<Node> candidates = new ArrayList<>();
+		for(int index: this.finger.getKeys(false)) {
+			Node entry = this.finger.getEntry(index);
+			if(!candidates.contains(entry)) {
+				candidates.add(entry);
+			}
+		}
+		for(Node successor: this.successors) {
+			if(!candidates.contains(successor)) {
+				candidates.add(successor);
+			}
+		}
+		
+		int space = 1 << this.hash_size;
+		ArrayList<Node> preceding = new ArrayList<>();
+		for(Node candidate: candidates) {
+			if(Utils.belongsToInterval(candidate.getId(), this.id, target_id) && candidate.getId() != target_id) {
+				preceding.add(candidate);
+			}
+		}
+		preceding.sort((a, b) -> Integer.compare(Math.floorMod(target_id-a.getId(), space), Math.floorMod(target_id-b.getId(), space)));
+		
+		while(preceding.size() > count) {
+			preceding.remove(preceding.size()-1);
+		}
+		return preceding;
+	}
+	
 	/**
 	 * Performs an iterative step of find_successor
 	 * @param target_node node to ask for the given id
@@ -234,19 +840,44 @@ public class Node implements Comparable<Node>{
 	 * @param nodes_contacted number of nodes contacted
 	 */
 	public void find_successor_step(Node target_node, ArrayList<Node> prev_contacted_nodes, int id, String target_dt, int position, int path_length, int num_timeouts, int nodes_contacted) {
-		if(this.subscribed && !this.crashed) {
+		if(this.subscribed && !this.crashed && this.lookup_parallelism > 1 && target_dt.equals("lookup")) {
+			//the candidates are known locally only if the lookup starts here, otherwise no reply carrying them is available
+			Node last_in_list = prev_contacted_nodes.get(prev_contacted_nodes.size()-1);
+			ArrayList<Node> candidates = new ArrayList<>();
+			candidates.add(target_node);
+			if(last_in_list.equals(this)) {
+				for(Node candidate: this.closest_preceding_nodes(id, this.lookup_parallelism)) {
+					if(candidates.size() < this.lookup_parallelism && !candidates.contains(candidate)) {
+						candidates.add(candidate);
+					}
+				}
+			}
+			this.find_successor_parallel_step(candidates, prev_contacted_nodes, id, target_dt, position, path_length, num_timeouts, nodes_contacted);
+		} else if(this.subscribed && !this.crashed) {
 			System.out.println("step "+this.id+ " -> "+target_node.getId()+" "+RunEnvironment.getInstance().getCurrentSchedule().getTickCount());
 			
 			if(target_dt.equals("lookup")) { 
-				this.removeOutEdges();
-				this.viewNet.addEdge(this, target_node);
+				this.path_view.hop(this, target_node);
 			}
 			
 			Pair<Node, Boolean> return_value = target_node.processSuccRequest(id);
 			
+			MessageStats.MessageType type = MessageStats.MessageType.fromTarget(target_dt);
+			this.message_stats.record(type, this.id, MessageStats.idsMessageBytes(1));
+			if(return_value.getFirst() != null) {
+				this.message_stats.record(type, target_node.getId(), MessageStats.idsMessageBytes(1)+1);
+			}
+			
 			double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
 			double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
-			double delay_tot = return_value.getFirst() == null ? this.maximum_allowed_delay : delay_req+delay_resp;
+			double delay_tot = return_value.getFirst() == null ? this.rtt.timeout(target_node) : delay_req+delay_resp;
+			if(return_value.getFirst() != null && this.rtt.isLate(target_node, delay_tot)) { //spurious timeout
+				return_value = new Pair<Node, Boolean>(null, false);
+				delay_tot = this.rtt.timeout(target_node);
+			}
+			if(return_value.getFirst() != null) {
+				this.responseFrom(target_node, delay_tot);
+			}
 			
 			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 			ScheduleParameters scheduleParameters = ScheduleParameters
@@ -255,6 +886,78 @@ public class Node implements Comparable<Node>{
 		}
 	}
 	
+	/**
+	 * Performs an iterative step of a lookup querying concurrently the candidates returned by the last node of the path, i.e. its
+	 * closest preceding node (the next hop) followed by the next best ones; the first answer received is processed, the others are discarded.
+	 * If no queried node answers, the step times out as in find_successor_step. The latency saved w.r.t. waiting for the next hop
+	 * and the extra messages are added to the lookup
+	 * @param candidates nodes to ask for the given id, the first one is the next hop
+	 * @param prev_contacted_nodes list of previously contacted nodes
+	 * @param id id of interest
+	 * @param target_dt target data structure ("lookup")
+	 * @param position index in the target data structure
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 * @param nodes_contacted number of nodes contacted
+	 */
+	private void find_successor_parallel_step(ArrayList<Node> candidates, ArrayList<Node> prev_contacted_nodes, int id, String target_dt, int position, int path_length, int num_timeouts, int nodes_contacted) {
+		Node target_node = candidates.get(0);
+		ArrayList<Node> targets = new ArrayList<>();
+		targets.add(target_node);
+		for(Node candidate: candidates) {
+			if(targets.size() < this.lookup_parallelism && !targets.contains(candidate) && !candidate.equals(this) && !prev_contacted_nodes.contains(candidate)) {
+				targets.add(candidate);
+			}
+		}
+		this.path_view.hop(this, target_node);
+		
+		MessageStats.MessageType type = MessageStats.MessageType.fromTarget(target_dt);
+		Pair<ArrayList<Node>, Boolean> first_response = null;
+		Node first_source = null;
+		double first_delay = this.rtt.timeout(target_node);
+		double target_delay = first_delay;
+		int extra_messages = 0;
+		for(Node target: targets) {
+			Pair<ArrayList<Node>, Boolean> response = target.processSuccRequest(id, this.lookup_parallelism);
+			this.message_stats.record(type, this.id, MessageStats.idsMessageBytes(1));
+			if(!target.equals(target_node)) {
+				extra_messages++;
+			}
+			if(!response.getFirst().isEmpty()) {
+				this.message_stats.record(type, target.getId(), MessageStats.idsMessageBytes(response.getFirst().size())+1);
+				double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+				double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+				double delay = delay_req+delay_resp;
+				if(!target.equals(target_node)) {
+					extra_messages++;
+				}
+				if(this.rtt.isLate(target, delay)) { //spurious timeout, the answer is discarded
+					continue;
+				}
+				this.responseFrom(target, delay);
+				if(target.equals(target_node)) {
+					target_delay = delay;
+				}
+				if(first_response == null || delay < first_delay) {
+					first_response = response;
+					first_source = target;
+					first_delay = delay;
+				}
+			}
+		}
+		
+		if(first_response == null) {
+			first_response = new Pair<ArrayList<Node>, Boolean>(new ArrayList<>(), false);
+			first_source = target_node;
+		}
+		this.lookup_table.get(position).addParallelStep((target_delay-first_delay)/1000, extra_messages);
+		
+		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+		ScheduleParameters scheduleParameters = ScheduleParameters
+				.createOneTime(schedule.getTickCount() + first_delay/1000);
+		schedule.schedule(scheduleParameters, this, "processParallelSuccResponse", first_response, first_source, prev_contacted_nodes, id, target_dt, position, path_length, num_timeouts, nodes_contacted+targets.size()-1);
+	}
+	
 	/**
 	 * Processes a successor request
 	 * @param id id of interest
@@ -264,6 +967,7 @@ public class Node implements Comparable<Node>{
 		Pair<Node, Boolean> pair = null;
 		if(this.subscribed && this.initialized && !this.crashed) {
 			if (!this.successors.isEmpty()) {
+				this.requests_served++;
 				if(Utils.belongsToInterval(id, this.id, this.successors.get(0).getId())) {
 					pair = new Pair<Node, Boolean>(this.successors.get(0), true);
 				} else {
@@ -279,6 +983,29 @@ public class Node implements Comparable<Node>{
 		return pair;
 	}
 	
+	/**
+	 * Processes a successor request of a parallel lookup, returning the next best candidates along with the next hop
+	 * @param id id of interest
+	 * @param count maximum number of nodes returned
+	 * @return pair (List, Boolean): the first element is empty if the current node is not subscribed or crashed, otherwise it starts with
+	 * the node returned by processSuccRequest, followed by the next closest preceding nodes if it is not the one responsible for the given id
+	 */
+	public Pair<ArrayList<Node>, Boolean> processSuccRequest(int id, int count) {
+		Pair<Node, Boolean> pair = this.processSuccRequest(id);
+		ArrayList<Node> candidates = new ArrayList<>();
+		if(pair.getFirst() != null) {
+			candidates.add(pair.getFirst());
+			if(!pair.getSecond()) {
+				for(Node candidate: this.closest_preceding_nodes(id, count)) {
+					if(candidates.size() < count && !candidates.contains(candidate)) {
+						candidates.add(candidate);
+					}
+				}
+			}
+		}
+		return new Pair<ArrayList<Node>, Boolean>(candidates, pair.getSecond());
+	}
+	
 	/**
 	 * Removes references to a node no longer present from finger and successor, returning the next closest preceding node w.r.t. the given id (if the current node is subscribed and not crashed).
 	 * @param dead reference to the dead node
@@ -288,7 +1015,7 @@ public class Node implements Comparable<Node>{
 	public Node getPrevSuccessor(Node dead, int id) {
 		if(this.subscribed && this.initialized && !this.crashed) {
 			this.finger.removeEntry(dead);
-			this.successors.remove(dead);
+			this.successors = this.successors.without(dead);
 			if(!this.successors.isEmpty()) {
 				this.finger.setEntry(1, this.successors.get(0));
 			}
@@ -322,8 +1049,7 @@ public class Node implements Comparable<Node>{
 			if(response.getFirst() == null) {
 				Node last_in_list = prev_contacted_nodes.get(prev_contacted_nodes.size()-1);
 				if(target_dt.equals("lookup")) { 
-					this.removeOutEdges();
-					this.viewNet.addEdge(this, last_in_list);
+					this.path_view.hop(this, last_in_list);
 				}
 				Node prev_successor = last_in_list.getPrevSuccessor(source, id);
 				
@@ -334,17 +1060,21 @@ public class Node implements Comparable<Node>{
 					} else {
 						Node dead = prev_contacted_nodes.remove(prev_contacted_nodes.size()-1);
 						ScheduleParameters scheduleParameters = ScheduleParameters
-								.createOneTime(schedule.getTickCount() + this.maximum_allowed_delay/1000);
+								.createOneTime(schedule.getTickCount() + this.rtt.timeout(dead)/1000);
 						schedule.schedule(scheduleParameters, this, "processSuccResponse", new Pair<Node,Boolean>(null, false), dead, prev_contacted_nodes, id, target_dt, position, path_length-1, num_timeouts+1, nodes_contacted+1);
 					}
 				} else if (prev_successor.equals(this)){
 					if(target_dt.equals("lookup")) { 
-						this.removeOutEdges();
+						this.path_view.clear(this);
 					}
 					this.setResult(this.successors.get(0), target_dt, position, path_length+1, num_timeouts+1, nodes_contacted+2);
 				} else if (last_in_list.equals(this)) {
 					this.find_successor_step(prev_successor, prev_contacted_nodes, id, target_dt, position, path_length, num_timeouts+1, nodes_contacted+1);
 				} else {					
+					MessageStats.MessageType type = MessageStats.MessageType.fromTarget(target_dt);
+					this.message_stats.record(type, this.id, MessageStats.idsMessageBytes(2));
+					this.message_stats.record(type, last_in_list.getId(), MessageStats.idsMessageBytes(1));
+					
 					double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
 					double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
 					double delay_tot = delay_req+delay_resp;
@@ -356,7 +1086,7 @@ public class Node implements Comparable<Node>{
 			} else {
 				if(response.getSecond()) {
 					if(target_dt.equals("lookup")) { 
-						this.removeOutEdges();
+						this.path_view.clear(this);
 					}
 					this.setResult(response.getFirst(), target_dt, position, path_length+2, num_timeouts, nodes_contacted+2);
 				} else {
@@ -367,20 +1097,49 @@ public class Node implements Comparable<Node>{
 		}
 	}
 	
+	/**
+	 * Processes the response to a successor request of a parallel lookup: if the contacted node is not responsible for the given id,
+	 * the candidates it returned are queried by the next parallel step, otherwise the response is processed as in processSuccResponse
+	 * @param response pair (List, Boolean) returned by the contacted node
+	 * @param source contacted node
+	 * @param prev_contacted_nodes list of previously contacted nodes
+	 * @param id id of interest
+	 * @param target_dt target data structure ("lookup")
+	 * @param position index in the target data structure
+	 * @param path_length length of the query path
+	 * @param num_timeouts number of timeouts experienced
+	 * @param nodes_contacted number of nodes contacted
+	 */
+	public void processParallelSuccResponse(Pair<ArrayList<Node>, Boolean> response, Node source, ArrayList<Node> prev_contacted_nodes, int id, String target_dt, int position, int path_length, int num_timeouts, int nodes_contacted) {
+		if(this.subscribed && !this.crashed && !response.getFirst().isEmpty() && !response.getSecond()) {
+			prev_contacted_nodes.add(source);
+			this.find_successor_parallel_step(response.getFirst(), prev_contacted_nodes, id, target_dt, position, path_length+1, num_timeouts, nodes_contacted+1);
+		} else {
+			Node first = response.getFirst().isEmpty() ? null : response.getFirst().get(0);
+			this.processSuccResponse(new Pair<Node, Boolean>(first, response.getSecond()), source, prev_contacted_nodes, id, target_dt, position, path_length, num_timeouts, nodes_contacted);
+		}
+	}
+	
 	/**
 	 * Inserts the node resulting from the execution of find_successor into the right data structure
 	 * @param successor node responsible for the queried id
-	 * @param target_dt target data structure: "init", "finger", "successors" or "lookup"
+	 * @param target_dt target data structure: "init", "finger", "successors", "lookup", "kv" or "range"
 	 * @param position position index in the target data structure
 	 * @param path_length length of the query path
 	 * @param nodes_contacted number of nodes contacted
 	 */
 	private void setResult(Node successor, String target_dt, int position, int path_length, int num_timeouts, int nodes_contacted) {
+		if(!target_dt.equals("lookup") && !target_dt.equals("kv") && !target_dt.equals("range")) {
+			this.top.getLookupStats().record(target_dt, -1, path_length, num_timeouts, false);
+		}
 		switch(target_dt) {
 			case "init":
 				if(!successor.equals(this)) {
 					this.finger.setEntry(position, successor);
-					this.successors.add(successor);
+					this.successors = this.successors.toBuilder(1).add(successor).build();
+					if(this.fast_join) {
+						this.requestState(successor);
+					}
 					this.stabilization(0);
 				} else {
 					this.forcedLeaving();
@@ -389,10 +1148,22 @@ public class Node implements Comparable<Node>{
 			case "finger":
 				if(position == 1) {
 					this.finger.setEntry(position, successor);
-					this.successors.set(0, successor);
+					if(!this.successors.get(0).equals(successor)) {
+						this.successors = this.successors.toBuilder(0).set(0, successor).build();
+					}
+					ProtocolEvents.fingerRepair(this.id, position, successor.getId(), path_length);
 				} else if (!successor.equals(this)) {
 					this.finger.setEntry(position, successor);
+					ProtocolEvents.fingerRepair(this.id, position, successor.getId(), path_length);
 					this.next++;
+					if(this.multi_finger_repair) {
+						//the following fingers whose start precedes the node found have the same successor
+						while(this.next <= this.finger_size && Utils.belongsToInterval(this.fingerStart(this.next), this.id, successor.getId())) {
+							this.finger.setEntry(this.next, successor);
+							ProtocolEvents.fingerRepair(this.id, this.next, successor.getId(), path_length);
+							this.next++;
+						}
+					}
 				} else {
 					this.finger.removeEntry(position);
 					this.next++;
@@ -402,9 +1173,9 @@ public class Node implements Comparable<Node>{
 				if(position == 0) {
 					this.finger.setEntry(1, successor);
 					if(this.successors.isEmpty()) {
-						this.successors.add(successor);
-					} else {
-						this.successors.set(0, successor);
+						this.successors = this.successors.toBuilder(1).add(successor).build();
+					} else if(!this.successors.get(0).equals(successor)) {
+						this.successors = this.successors.toBuilder(0).set(0, successor).build();
 					}
 				} else if (!successor.equals(this)) {
 					int i = 0;
@@ -415,37 +1186,35 @@ public class Node implements Comparable<Node>{
 					
 					this.last_stabilized_succ = successor;
 					
+					//the list is rebuilt only if the entry found differs from the current one
 					if(position >= this.successors.size()) {
 						if(!this.successors.contains(successor)) {
-							this.successors.add(successor);
+							this.successors = this.successors.toBuilder(1).add(successor).build();
 						}
 					} else {
 						Node prev_element = this.successors.get(position);
 						if(!prev_element.equals(successor)) {
-							if(Utils.belongsToInterval(successor.getId(), this.successors.get(position-1).getId(), prev_element.getId())) {
-								this.successors.add(position, successor);
-								if(this.successors.size() > this.successors_size) {
-									this.successors.remove(this.successors.size()-1);
-								}
+							SuccessorList.Builder updated = this.successors.toBuilder(1);
+							if(Utils.belongsToInterval(successor.getId(), updated.get(position-1).getId(), prev_element.getId())) {
+								updated.add(position, successor);
 							} else {
-								this.successors.set(position, successor);
+								updated.set(position, successor);
 								
 								int j = position+1;
 								boolean done = false;
-								while(j < this.successors.size() && !done) {
-									Node current = this.successors.get(j);
-									if(Utils.belongsToInterval(current.getId(), this.successors.get(position-1).getId(), successor.getId())) {
-										this.successors.remove(j);
+								while(j < updated.size() && !done) {
+									Node current = updated.get(j);
+									if(Utils.belongsToInterval(current.getId(), updated.get(position-1).getId(), successor.getId())) {
+										updated.remove(j);
 									} else {
 										done = true;
 									}
 								}
 							}
+							this.successors = updated.build();
 						}
 					}
-					while(this.successors.size() > this.successors_size) {
-						this.successors.remove(this.successors.size()-1);
-					}
+					this.successors = this.successors.truncate(this.successors_size);
 				} else if(!this.successors.isEmpty()) {
 					this.last_stabilized_succ = this.successors.get(0);
 				} else {
@@ -458,8 +1227,9 @@ public class Node implements Comparable<Node>{
 				double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
 			
 				if(!successor.equals(this)) {
-					this.removeOutEdges();
-					this.viewNet.addEdge(this, successor);
+					this.message_stats.record(MessageStats.MessageType.LOOKUP, this.id, MessageStats.idsMessageBytes(1));
+					this.message_stats.record(MessageStats.MessageType.LOOKUP, successor.getId(), MessageStats.idsMessageBytes(1));
+					this.path_view.hop(this, successor);
 					ScheduleParameters scheduleParamsRemoveEdges = ScheduleParameters.createOneTime(schedule.getTickCount() + (delay_req+delay_resp)/1000);
 					schedule.schedule(scheduleParamsRemoveEdges, this, "resetLookupKey");
 				} else {
@@ -468,6 +1238,90 @@ public class Node implements Comparable<Node>{
 				
 				ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + delay_req/1000);
 				schedule.schedule(scheduleParameters, this.lookup_table.get(position), "setResult", successor, path_length, num_timeouts, nodes_contacted, delay_resp/1000);
+				break;
+			case "kv":
+				KVRequest request = this.kv_requests.remove(position);
+				if(request != null) {
+					if(path_length == -1) {
+						request.setResult(null, -1, num_timeouts, false, null);
+					} else {
+						this.sendKVRequest(request, successor, path_length, num_timeouts);
+					}
+				}
+				break;
+			case "range":
+				RangeQuery query = this.range_queries.remove(position);
+				if(query != null) {
+					if(path_length == -1) {
+						query.complete(true);
+					} else {
+						query.start(successor, path_length);
+						this.scanRange(query);
+					}
+				}
+		}
+	}
+	
+	/**
+	 * Asks the successor for its finger table and successors list, scheduling processStateResponse (fast join)
+	 * @param successor the successor of the current node
+	 */
+	public void requestState(Node successor) {
+		Pair<SuccessorList, ArrayList<Node>> return_value = successor.processStateRequest();
+		
+		this.message_stats.record(MessageStats.MessageType.JOIN, this.id, MessageStats.idsMessageBytes(1));
+		if(return_value.getFirst() != null) {
+			this.message_stats.record(MessageStats.MessageType.JOIN, successor.getId(), MessageStats.idsMessageBytes(return_value.getFirst().size()+return_value.getSecond().size()));
+			
+			double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+			ScheduleParameters scheduleParameters = ScheduleParameters.createOneTime(schedule.getTickCount() + (delay_req+delay_resp)/1000);
+			schedule.schedule(scheduleParameters, this, "processStateResponse", successor, return_value);
+		}
+	}
+	
+	/**
+	 * Responds to a state request from a joining node
+	 * @return a pair containing the successors list and the finger table entries (index i-1 for the entry i, null if empty), or (null,null) if not sub or crashed
+	 */
+	public Pair<SuccessorList, ArrayList<Node>> processStateRequest() {
+		if(this.subscribed && this.initialized && !this.crashed) {
+			ArrayList<Node> fingers = new ArrayList<>();
+			for(int i=1; i <= this.finger_size; i++) {
+				fingers.add(this.finger.getEntry(i));
+			}
+			return new Pair<SuccessorList, ArrayList<Node>>(this.successors, fingers);
+		} else {
+			return new Pair<SuccessorList, ArrayList<Node>>(null, null);
+		}
+	}
+	
+	/**
+	 * Initializes the finger table and the successors list from the state of the successor; the entries are validated later by fix_fingers and fix_successors
+	 * @param source the successor that sent its state
+	 * @param state pair of successors list and finger table entries of the successor
+	 */
+	public void processStateResponse(Node source, Pair<SuccessorList, ArrayList<Node>> state) {
+		if(this.subscribed && !this.crashed && !this.successors.isEmpty() && this.successors.get(0).equals(source)) {
+			SuccessorList.Builder updated = this.successors.toBuilder(this.successors_size);
+			for(Node succ: state.getFirst()) {
+				if(updated.size() < this.successors_size && !succ.equals(this) && !updated.contains(succ)) {
+					updated.add(succ);
+				}
+			}
+			this.successors = updated.build();
+			
+			for(int k=2; k <= this.finger_size; k++) {
+				if(Utils.belongsToInterval(this.fingerStart(k), this.id, source.getId())) {
+					this.finger.setEntry(k, source);
+				} else {
+					Node entry = state.getSecond().get(k-1);
+					if(entry != null && !entry.equals(this)) {
+						this.finger.setEntry(k, entry);
+					}
+				}
+			}
 		}
 	}
 	
@@ -508,15 +1362,21 @@ public class Node implements Comparable<Node>{
 				} else {
 					double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
 					double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
-					double delay_tot = (suc.crashed || !suc.subscribed) ? this.maximum_allowed_delay : delay_req+delay_resp;
+					boolean answered = suc.subscribed && !suc.crashed && !this.rtt.isLate(suc, delay_req+delay_resp);
+					double delay_tot = answered ? delay_req+delay_resp : this.rtt.timeout(suc);
 					
 					ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 					ScheduleParameters scheduleParameters = ScheduleParameters
 							.createOneTime(schedule.getTickCount() + delay_tot/1000);
-				
+					
+					this.message_stats.record(MessageStats.MessageType.STABILIZATION, this.id, MessageStats.idsMessageBytes(0));
 					if (suc.subscribed && !suc.crashed) {
+						this.message_stats.record(MessageStats.MessageType.STABILIZATION, suc.getId(), MessageStats.idsMessageBytes(1));
+					}
+					if (answered) {
+						this.responseFrom(suc, delay_tot);
 						schedule.schedule(scheduleParameters, this, "stabilization_step", suc);
-					} else { //in this case the value is maximum_allowed_delay for sure, so it retries on timeout
+					} else { //dead or late successor, it retries on timeout
 						schedule.schedule(scheduleParameters, this, "stabilization", retryCount+1);		
 					}
 				}
@@ -532,6 +1392,7 @@ public class Node implements Comparable<Node>{
 		if(this.subscribed && !this.crashed) {
 			//first time managing the step, add as first successor the predecessor of the node who answered		
 			Node predecessorOfSuccessor = answeringNode.getPredecessor(); 
+			ProtocolEvents.stabilization(this.id, answeringNode.getId());
 			//update successors
 			System.out.println("\nstab "+this.id+ "  "+answeringNode.getId()+"  "+RunEnvironment.getInstance().getCurrentSchedule().getTickCount());
 			
@@ -540,24 +1401,19 @@ public class Node implements Comparable<Node>{
 				ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 				
 				System.err.println("Node "+this.id+": SUCCESSOR is DEAD");
+				this.message_stats.record(MessageStats.MessageType.NOTIFICATION, this.id, MessageStats.idsMessageBytes(0));
 				ScheduleParameters scheduleParameters = ScheduleParameters
 						.createOneTime(schedule.getTickCount() + delay_req/1000);
 				schedule.schedule(scheduleParameters, answeringNode, "resetPredecessor");
 				
 				ScheduleParameters myScheduleParameters = ScheduleParameters
-						.createOneTime(schedule.getTickCount() + this.maximum_allowed_delay/1000);
+						.createOneTime(schedule.getTickCount() + this.rtt.timeout(answeringNode)/1000);
 				schedule.schedule(myScheduleParameters, this, "stabilization", 1);					
 			} else {
-				while (this.successors.get(0)!=answeringNode) {
-					this.successors.remove(0);
-				}
+				this.successors = this.successors.dropFirst(this.successors.indexOf(answeringNode));
 				
 				if (predecessorOfSuccessor!=null && Utils.belongsToInterval(predecessorOfSuccessor.getId(), this.id, this.successors.get(0).getId()) && predecessorOfSuccessor.getId() != this.successors.get(0).getId()){
-					this.successors.add(0,predecessorOfSuccessor);
-					this.successors.remove(this);
-					while(this.successors.size() > this.successors_size) {
-						this.successors.remove(this.successors.size()-1);
-					}
+					this.successors = this.successors.toBuilder(1).add(0, predecessorOfSuccessor).remove(this).truncate(this.successors_size).build();
 				}
 				//update finger table
 				this.finger.setEntry(1, successors.get(0));
@@ -565,26 +1421,30 @@ public class Node implements Comparable<Node>{
 				Node suc = this.successors.get(0); 
 				if (suc!=null && !suc.equals(this)) {
 					double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
-					Pair<Node, ArrayList<Node>> return_value = suc.processStabRequest(this,delay_req);
+					int known_version = (this.delta_successors && suc.equals(this.stab_peer)) ? this.stab_peer_version : -1;
+					Pair<Node, SuccessorListDelta> return_value = suc.processStabRequest(this, delay_req, known_version);
+					this.message_stats.record(MessageStats.MessageType.STABILIZATION, this.id, MessageStats.idsMessageBytes(this.delta_successors ? 2 : 1));
 						
 					double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
 					double delay_sum = delay_req+delay_resp;
 					
 					ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 				
-					if (return_value.getFirst() != null) {
+					if (return_value.getFirst() != null && !this.rtt.isLate(suc, delay_sum)) {
+						this.responseFrom(suc, delay_sum);
 						ScheduleParameters scheduleParameters = ScheduleParameters
 								.createOneTime(schedule.getTickCount() + delay_sum/1000);
 						schedule.schedule(scheduleParameters, this, "processStabResponse", return_value);
 						this.schedule_stabilization(); //schedule next stabilization
-					} else { //in this case the value is maximum_allowed_delay for sure, so it retries on timeout
+					} else { //dead or late successor, it retries on timeout
 						System.err.println("Node "+this.id+": SUCCESSOR is DEAD");
+						this.message_stats.record(MessageStats.MessageType.NOTIFICATION, this.id, MessageStats.idsMessageBytes(0));
 						ScheduleParameters scheduleParameters = ScheduleParameters
 								.createOneTime(schedule.getTickCount() + delay_req/1000);
 						schedule.schedule(scheduleParameters, answeringNode, "resetPredecessor");
 						
 						ScheduleParameters myScheduleParameters = ScheduleParameters
-								.createOneTime(schedule.getTickCount() + this.maximum_allowed_delay/1000);
+								.createOneTime(schedule.getTickCount() + this.rtt.timeout(suc)/1000);
 						schedule.schedule(myScheduleParameters, this, "stabilization", 1);		
 					}
 				} else {
@@ -610,22 +1470,49 @@ public class Node implements Comparable<Node>{
 	 * Responds to the stabilization request from another node
 	 * @param pred reference to the predecessor (node requiring stabilization)
 	 * @param set_pred_delay delay for predecessor notification
-	 * @return a pair type containing the node itself and its successors, or (null,null) if not sub or crashed
+	 * @param known_version version of the successors list already known by the predecessor, -1 if none
+	 * @return a pair type containing the node itself and its successors (encoded w.r.t. the known version), or (null,null) if not sub or crashed
 	 */
-	public Pair<Node, ArrayList<Node>> processStabRequest(Node pred, double set_pred_delay) {
+	public Pair<Node, SuccessorListDelta> processStabRequest(Node pred, double set_pred_delay, int known_version) {
 		if(this.subscribed && this.initialized && !this.crashed) {
 			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 			ScheduleParameters scheduleParameters = ScheduleParameters
 					.createOneTime(schedule.getTickCount() + set_pred_delay/1000);
 			schedule.schedule(scheduleParameters, this, "notifiedPredecessor", pred);
 			
-			return new Pair<Node, ArrayList<Node>>(this,this.successors);
+			if(this.successors != this.succ_advertised) { //new version of the successors list (immutable, so every edit yields a new instance)
+				this.succ_version++;
+				this.succ_advertised = this.successors;
+				this.succ_history.put(this.succ_version, this.succ_advertised);
+				if(this.succ_history.size() > SUCC_HISTORY) {
+					this.succ_history.remove(this.succ_history.keySet().iterator().next());
+				}
+			}
+			SuccessorListDelta reply;
+			if(this.delta_successors) {
+				reply = SuccessorListDelta.encode(known_version, this.succ_history.get(known_version), this.succ_version, this.succ_advertised);
+			} else {
+				reply = SuccessorListDelta.full(this.succ_version, this.succ_advertised);
+			}
+			this.message_stats.record(MessageStats.MessageType.STABILIZATION, this.id, reply.getBytes());
+			this.message_stats.recordSuccessorList(MessageStats.idsMessageBytes(1+this.succ_advertised.size()), reply.getBytes());
+			return new Pair<Node, SuccessorListDelta>(this, reply);
 		} else {
 			System.err.println("Node "+this.id+": sorry, I'm DEAD");
-			return new Pair<Node, ArrayList<Node>>(null,null);
+			return new Pair<Node, SuccessorListDelta>(null,null);
 		}		
 	}
 	
+	/**
+	 * Forgets the successors list last received through stabilization
+	 */
+	private void clearStabPeer() {
+		this.stab_peer = null;
+		this.stab_peer_version = -1;
+		this.stab_peer_list = null;
+		this.stab_built = null;
+	}
+	
 	/**
 	 * Updates the predecessor of the current node if the new one is closer w.r.t. the old one
 	 * @param predecessor reference to the new predecessor
@@ -638,14 +1525,17 @@ public class Node implements Comparable<Node>{
 			
 			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 			
-			HashMap<Integer,String> dataToTransfer = this.transferDataUpToKey(this.predecessor.getId());
+			TreeMap<Integer,String> dataToTransfer = this.transferDataUpToKey(this.predecessor.getId());
 			if(!dataToTransfer.isEmpty()) {
+				this.message_stats.record(MessageStats.MessageType.DATA_TRANSFER, this.id, MessageStats.dataMessageBytes(dataToTransfer));
+				ProtocolEvents.dataHandoff(this.id, this.predecessor.getId(), dataToTransfer.size());
 				ScheduleParameters scheduleParameters = ScheduleParameters
 						.createOneTime(schedule.getTickCount() + Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay)/1000);
 				schedule.schedule(scheduleParameters, this.predecessor, "newData", dataToTransfer);
 			}
 				
 			if(prev_predecessor != null) {
+				this.message_stats.record(MessageStats.MessageType.NOTIFICATION, this.id, MessageStats.idsMessageBytes(1));
 				ScheduleParameters scheduleParameters2 = ScheduleParameters
 						.createOneTime(schedule.getTickCount() + Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay)/1000);
 				schedule.schedule(scheduleParameters2, prev_predecessor, "setNewSuccessor", this.predecessor);
@@ -662,37 +1552,46 @@ public class Node implements Comparable<Node>{
 			this.finger.setEntry(1, successor);
 			if(!this.successors.get(0).equals(successor)){
 				if(this.successors.contains(successor)) {
-					while(!this.successors.get(0).equals(successor)) {
-						this.successors.remove(0);
-					}
+					this.successors = this.successors.dropFirst(this.successors.indexOf(successor));
 				} else {
-					this.successors.add(0, successor);
-					while(this.successors.size() > this.successors_size) {
-						this.successors.remove(this.successors_size-1);
-					}
+					this.successors = this.successors.toBuilder(1).add(0, successor).truncate(this.successors_size).build();
 				}
 			}
 		}
 	}
 	
 	/**
-	 * Manage the response of a stabilization request, updating the successors list, eventually asking the following successor in case the immediate ones is not available anymore. At the end, it calls fix_data_structures()
-	 * @param stabResponse pair of responding node and its successors list
+	 * Manage the response of a stabilization request, updating the successors list, eventually asking the following successor in case the immediate ones is not available anymore. At the end, it calls fix_data_structures().
+	 * The successors list is rebuilt only if the one of the responder or the local one changed since the last rebuild
+	 * @param stabResponse pair of responding node and its successors list, encoded w.r.t. the version known by the current node
 	 */
-	public void processStabResponse(Pair<Node, ArrayList<Node>> stabResponse) {
+	public void processStabResponse(Pair<Node, SuccessorListDelta> stabResponse) {
 		if(this.subscribed && !this.crashed) {
-			System.out.println("\nTick "+ RunEnvironment.getInstance().getCurrentSchedule().getTickCount() +", Node " +this.id.toString() + 
-					": \n\treceived stabresponse from "+ stabResponse.getFirst().id.toString() + ": " + this.printableNodeList(stabResponse.getSecond()));
-	
 			if (stabResponse.getFirst() != null) {
-				if(stabResponse.getFirst().equals(this.successors.get(0))) {
-					ArrayList<Node> updatedSucc = new ArrayList<>();
-					updatedSucc.add(stabResponse.getFirst());		//add the immediate successor
+				Node responder = stabResponse.getFirst();
+				SuccessorListDelta reply = stabResponse.getSecond();
+				boolean known = responder.equals(this.stab_peer) && reply.getBaseVersion() == this.stab_peer_version;
+				SuccessorList received = reply.apply(known ? this.stab_peer_list : null);
+				if(received == null) { //the delta refers to a version no longer known, wait for the next stabilization
+					this.clearStabPeer();
+					this.fix_data_structures();
+					return;
+				}
+				System.out.println("\nTick "+ RunEnvironment.getInstance().getCurrentSchedule().getTickCount() +", Node " +this.id.toString() + 
+						": \n\treceived stabresponse from "+ responder.id.toString() + ": " + this.printableNodeList(received));
+				boolean unchanged = reply.isUnchanged() && responder.equals(this.stab_peer);
+				this.stab_peer = responder;
+				this.stab_peer_version = reply.getVersion();
+				this.stab_peer_list = received;
+				
+				if(responder.equals(this.successors.get(0)) && !(unchanged && this.successors == this.stab_built)) {
+					SuccessorList.Builder updatedSucc = new SuccessorList.Builder(this.successors_size+1);
+					updatedSucc.add(responder);		//add the immediate successor
 					
 					boolean done = false;
-					for(int i=0; i < stabResponse.getSecond().size() && !done; i++) { //attach its successors
-						if(!stabResponse.getSecond().get(i).equals(this) && !stabResponse.getSecond().get(i).equals(updatedSucc.get(updatedSucc.size()-1))) {
-							updatedSucc.add(stabResponse.getSecond().get(i));
+					for(int i=0; i < received.size() && !done; i++) { //attach its successors
+						if(!received.get(i).equals(this) && !received.get(i).equals(updatedSucc.get(updatedSucc.size()-1))) {
+							updatedSucc.add(received.get(i));
 						} else {
 							done = true;
 						}
@@ -701,7 +1600,8 @@ public class Node implements Comparable<Node>{
 					if(updatedSucc.size() > this.successors_size) { //pop the last one
 						updatedSucc.remove(updatedSucc.size()-1);
 					}	
-					this.successors = updatedSucc;
+					this.successors = updatedSucc.build();
+					this.stab_built = this.successors;
 				}
 					
 				this.fix_data_structures();
@@ -726,24 +1626,117 @@ public class Node implements Comparable<Node>{
 		
 		this.check_predecessor();
 		
+		if(this.failure_detector != null) {
+			this.scheduleDetection();
+		}
+		
 		if(!this.initialized) {
 			this.initialized = true;
+			this.scheduleNodeCrash();
+		}
+	}
+	
+	/**
+	 * Schedules the next detection round, unless one is already pending (the rounds of a node form a single chain, restarted
+	 * by the stabilization if it stopped because the node left)
+	 */
+	private void scheduleDetection() {
+		if(!this.probe_pending) {
+			this.probe_pending = true;
 			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
-			ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+this.crash_scheduling_interval);
-			schedule.schedule(scheduleParams, this, "nodeCrash");
+			ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+this.detector_interval);
+			schedule.schedule(scheduleParams, this, "detect_failures");
+		}
+	}
+	
+	/**
+	 * Sends a heartbeat to every peer in finger and successors, then evicts from finger and successors the peers suspected
+	 * by the failure detector (the only successor is never evicted) and schedules the next round
+	 */
+	public void detect_failures() {
+		this.probe_pending = false;
+		if(!this.subscribed) {
+			return;
+		}
+		this.scheduleDetection();
+		if(this.crashed || !this.initialized) {
+			return;
+		}
+		
+		ArrayList<Node> peers = new ArrayList<>();
+		for(int index: this.finger.getKeys(false)) {
+			Node entry = this.finger.getEntry(index);
+			if(!entry.equals(this) && !peers.contains(entry)) {
+				peers.add(entry);
+			}
+		}
+		for(Node successor: this.successors) {
+			if(!successor.equals(this) && !peers.contains(successor)) {
+				peers.add(successor);
+			}
+		}
+		if(peers.isEmpty()) {
+			return;
+		}
+		
+		for(Node peer: peers) {
+			this.message_stats.record(MessageStats.MessageType.HEARTBEAT, this.id, MessageStats.idsMessageBytes(0));
+			if(peer.subscribed && !peer.crashed) {
+				this.message_stats.record(MessageStats.MessageType.HEARTBEAT, peer.getId(), MessageStats.idsMessageBytes(0));
+				double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+				double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
+				if(!this.rtt.isLate(peer, delay_req+delay_resp)) {
+					this.responseFrom(peer, delay_req+delay_resp);
+					this.failure_detector.heard(peer, RunEnvironment.getInstance().getCurrentSchedule().getTickCount() + (delay_req+delay_resp)/1000);
+				}
+			}
+		}
+		
+		double tick = RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+		for(Node peer: peers) {
+			if(this.failure_detector.isSuspected(peer, tick)) {
+				ProtocolEvents.suspicion(this.id, peer.getId(), peer.crashed || !peer.subscribed);
+				this.finger.removeEntry(peer);
+				if(this.successors.size() > 1) {
+					this.successors = this.successors.without(peer);
+				}
+				this.failure_detector.forget(peer);
+			}
+		}
+		if(!this.successors.isEmpty()) {
+			this.finger.setEntry(1, this.successors.get(0));
 		}
 	}
 	
+	/**
+	 * Records an answer received from the given peer for the RTT estimation (only the heartbeats feed the failure detector,
+	 * so that the intervals it measures are not shortened by bursts of lookup answers)
+	 * @param peer the node that answered
+	 * @param rtt round trip time (ms)
+	 */
+	private void responseFrom(Node peer, double rtt) {
+		this.rtt.sample(peer, rtt);
+	}
+	
 	/**
 	 * Stabilizes one entry of the finger table
 	 */
 	public void fix_fingers() {
-		if (this.next > this.hash_size) {
+		if (this.next > this.finger_size) {
 			this.next = 2;
 		}
 		this.next = Math.min(next, this.finger.getFirstMissingKey());
 		
-		this.find_successor((this.id + (int) Math.pow(2, next-1)) %  ((int) Math.pow(2, this.hash_size)), "finger", next);	
+		this.find_successor(this.fingerStart(this.next), "finger", this.next);	
+	}
+	
+	/**
+	 * Returns the start of the given finger table entry
+	 * @param index index in the finger table
+	 * @return the identifier (id + j*b^i) mod 2^m, where index = i*(b-1)+j (id + 2^(index-1) with base 2)
+	 */
+	public int fingerStart(int index) {
+		return (int) ((this.id + FingerTable.offset(index, this.finger_base)) % (1L << this.hash_size));
 	}
 	
 	/**
@@ -770,9 +1763,18 @@ public class Node implements Comparable<Node>{
 			boolean down = (this.predecessor.crashed || !this.predecessor.subscribed);
 			double delay_req = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);			
 			double delay_resp = Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay);
-			double delay_tot = down ? this.maximum_allowed_delay : delay_req+delay_resp;
+			boolean late = !down && this.rtt.isLate(this.predecessor, delay_req+delay_resp);
+			double delay_tot = (down || late) ? this.rtt.timeout(this.predecessor) : delay_req+delay_resp;
+			
+			this.message_stats.record(MessageStats.MessageType.PREDECESSOR_CHECK, this.id, MessageStats.idsMessageBytes(0));
+			if (!down) {
+				this.message_stats.record(MessageStats.MessageType.PREDECESSOR_CHECK, this.predecessor.getId(), MessageStats.idsMessageBytes(0));
+			}
+			if (!down && !late) {
+				this.responseFrom(this.predecessor, delay_tot);
+			}
 			
-			if (down) {
+			if (down || late) {
 				System.out.println("Node "+this.id+": predecessor is down, scheduling its setting to null");
 				ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 				ScheduleParameters scheduleParameters = ScheduleParameters
@@ -786,60 +1788,127 @@ public class Node implements Comparable<Node>{
 	 * Performs the acquisition of data from another node
 	 * @param data new data
 	 */
-	public void newData(HashMap<Integer, String> data) {
+	public void newData(TreeMap<Integer, String> data) {
 		this.data.putAll(data);
 	}
 	
 	/**
-	 * Provides the data up to a certain key
+	 * Provides the data up to a certain key, i.e. the keys in (id, target_key]
 	 * @param target_key the id of interest
 	 * @return the data up to the provided key
 	 */
-	public HashMap<Integer, String> transferDataUpToKey(int target_key){
-		HashMap<Integer, String> dataToTransfer = new HashMap<>();
+	public TreeMap<Integer, String> transferDataUpToKey(int target_key){
+		TreeMap<Integer, String> dataToTransfer = new TreeMap<>();
 		
-		ArrayList<Integer> keys = new ArrayList<Integer>(this.data.keySet());
-		for(int i=0; i < keys.size(); i++) {
-			int key = keys.get(i);
-			if(Utils.belongsToInterval(key, this.id, target_key)) {
-				dataToTransfer.put(key, this.data.get(key));
-				this.data.remove(key);
-			}
+		if(this.id < target_key) {
+			NavigableMap<Integer, String> range = this.data.subMap(this.id, false, target_key, true);
+			dataToTransfer.putAll(range);
+			range.clear();
+		} else {
+			NavigableMap<Integer, String> tail = this.data.tailMap(this.id, false);
+			NavigableMap<Integer, String> head = this.data.headMap(target_key, true);
+			dataToTransfer.putAll(tail);
+			dataToTransfer.putAll(head);
+			tail.clear();
+			head.clear();
 		}
 		
 		return dataToTransfer;
 	}
 	
 	/**
-	 * Makes the node crashing with a certain probability
+	 * Returns the key splitting the stored keys in two halves in ring order, i.e. the id at which a node becoming
+	 * the predecessor of the current one would take the first half of its keys
+	 * @return the splitting key, -1 if less than two keys are stored
+	 */
+	public int splitKey() {
+		if(this.data.size() < 2) {
+			return -1;
+		}
+		ArrayList<Integer> keys = new ArrayList<>(this.data.tailMap(this.id, false).keySet());
+		keys.addAll(this.data.headMap(this.id, true).keySet());
+		return keys.get(keys.size()/2-1);
+	}
+	
+	/**
+	 * Returns the stored data whose keys belong to the identifier range [from, to] (wrapping around the ring if from > to)
+	 * @param from first key of the range
+	 * @param to last key of the range
+	 * @return a copy of the data in the range
+	 */
+	public TreeMap<Integer, String> getDataInRange(int from, int to) {
+		TreeMap<Integer, String> result = new TreeMap<>();
+		if(from <= to) {
+			result.putAll(this.data.subMap(from, true, to, true));
+		} else {
+			result.putAll(this.data.tailMap(from, true));
+			result.putAll(this.data.headMap(to, true));
+		}
+		return result;
+	}
+	
+	/**
+	 * Makes the node crashing with a certain probability; with virtual nodes only the first node of the host draws
+	 * the crash, which involves all the virtual nodes of the host
 	 */
 	public void nodeCrash() {
+		this.crash_pending = false;
 		if(this.subscribed && !this.crashed) {
-			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
-			if(this.initialized && this.rnd.nextDouble() < this.crash_pr) {
-				this.crashed = true;
-				this.resetLookupKey();
-				System.out.println("\nTick "+ RunEnvironment.getInstance().getCurrentSchedule().getTickCount() +", Node " +this.id.toString() + " is crashed");
-				ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+this.recovery_interval);
-				schedule.schedule(scheduleParams, this, "recovery");
+			boolean draws = this.host == null || this.host.isPrimary(this);
+			if(this.initialized && draws && this.rnd.nextDouble() < this.crash_pr) {
+				if(this.host == null) {
+					this.crash();
+				} else {
+					for(Node sibling: new ArrayList<>(this.host.getNodes())) {
+						sibling.crash();
+					}
+				}
 			} else {
-				ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+this.crash_scheduling_interval);
-				schedule.schedule(scheduleParams, this, "nodeCrash");
+				this.scheduleNodeCrash();
 			}
 		}
 	}
 	
+	/**
+	 * Schedules the next crash draw, unless one is already pending: a virtual node crashed with its host keeps the pending draw,
+	 * so that its recovery does not start a second chain of draws
+	 */
+	private void scheduleNodeCrash() {
+		if(!this.crash_pending) {
+			this.crash_pending = true;
+			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+			ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+this.crash_scheduling_interval);
+			schedule.schedule(scheduleParams, this, "nodeCrash");
+		}
+	}
+	
+	/**
+	 * Crashes the node and schedules its recovery
+	 */
+	private void crash() {
+		if(this.subscribed && !this.crashed) {
+			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+			this.crashed = true;
+			this.resetLookupKey();
+			this.failPendingRequests();
+			ProtocolEvents.crash(this.id);
+			System.out.println("\nTick "+ RunEnvironment.getInstance().getCurrentSchedule().getTickCount() +", Node " +this.id.toString() + " is crashed");
+			this.recovery_tick = schedule.getTickCount()+this.recovery_interval;
+			ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(this.recovery_tick);
+			schedule.schedule(scheduleParams, this, "recovery");
+		}
+	}
+	
 	/**
 	 * Performs the recovery after a crash
 	 */
 	public void recovery() {
 		this.crashed = false;
+		ProtocolEvents.recovery(this.id);
 		System.out.println("\nTick "+ RunEnvironment.getInstance().getCurrentSchedule().getTickCount() +", Node " +this.id.toString() + " is up again");
 		this.stabilization(0);
 		
-		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
-		ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+this.crash_scheduling_interval);
-		schedule.schedule(scheduleParams, this, "nodeCrash");
+		this.scheduleNodeCrash();
 	}
 	
 	/**
@@ -852,17 +1921,21 @@ public class Node implements Comparable<Node>{
 			Node successor = this.successors.get(0);
 			ScheduleParameters scheduleParameters = ScheduleParameters
 					.createOneTime(schedule.getTickCount() + Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay));
+			this.message_stats.record(MessageStats.MessageType.LEAVE, this.id, MessageStats.idsMessageBytes(1));
 			if(!(this.predecessor == null)) {
 				schedule.schedule(scheduleParameters, successor, "setPredecessor", this.predecessor);
 			} else {
 				schedule.schedule(scheduleParameters, successor, "resetPredecessor");
 			}
 			if(!this.data.isEmpty()) {
+				this.message_stats.record(MessageStats.MessageType.DATA_TRANSFER, this.id, MessageStats.dataMessageBytes(this.data));
+				ProtocolEvents.dataHandoff(this.id, successor.getId(), this.data.size());
 				schedule.schedule(scheduleParameters, successor, "newData", this.data);
 			}
 		}
 		
 		if(!(this.predecessor == null)) {
+			this.message_stats.record(MessageStats.MessageType.LEAVE, this.id, MessageStats.idsMessageBytes(2));
 			ScheduleParameters scheduleParameters = ScheduleParameters
 					.createOneTime(schedule.getTickCount() + Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay));
 			schedule.schedule(scheduleParameters, this.predecessor, "setLastSuccessor", this.successors.get(0), this.successors.get(this.successors.size()-1));		
@@ -892,6 +1965,7 @@ public class Node implements Comparable<Node>{
 		this.predecessor = predecessor.equals(this) ? null : predecessor;
 		
 		if(this.predecessor != null) {
+			this.message_stats.record(MessageStats.MessageType.NOTIFICATION, this.id, MessageStats.idsMessageBytes(1));
 			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 			ScheduleParameters scheduleParameters = ScheduleParameters
 					.createOneTime(schedule.getTickCount() + Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay)/1000);
@@ -910,24 +1984,22 @@ public class Node implements Comparable<Node>{
 			
 			if(!successor.equals(firstSuccessor)) {
 				this.finger.removeEntry(successor);
-				this.successors.remove(successor);
+				this.successors = this.successors.without(successor);
 			}
 			
 			if(!lastSuccessor.equals(this)) {
 				int index = this.successors.indexOf(lastSuccessor);
 				if(index != -1) {
-					this.successors = new ArrayList<>(this.successors.subList(0, index));
+					this.successors = this.successors.truncate(index);
 				} else {
-					this.successors.add(lastSuccessor);
-				}
-				while(this.successors.size() > this.successors_size) {
-					this.successors.remove(this.successors.size()-1);
+					this.successors = this.successors.toBuilder(1).add(lastSuccessor).build();
 				}
+				this.successors = this.successors.truncate(this.successors_size);
 			}
 			
 			if(this.successors.isEmpty()) {
 				this.finger.setEntry(1, this);
-				this.successors.add(this);
+				this.successors = this.successors.toBuilder(1).add(this).build();
 			} else {
 				this.finger.setEntry(1, this.successors.get(0));
 			}
@@ -943,12 +2015,20 @@ public class Node implements Comparable<Node>{
 		this.finger.clearTable();
 		this.next = 2;
 		
-		this.successors.clear();
+		this.successors = SuccessorList.empty();
 		this.last_stabilized_succ = null;
 		this.resetPredecessor();
+		this.succ_advertised = SuccessorList.empty();
+		this.succ_history.clear();
+		this.clearStabPeer();
 		
 		this.stabphase = true;
 		this.data.clear();
+		this.failPendingRequests();
+		this.rtt.clear();
+		if(this.failure_detector != null) {
+			this.failure_detector.clear();
+		}
 		
 		this.resetLookupKey();
 	}
@@ -960,6 +2040,7 @@ public class Node implements Comparable<Node>{
 		if(this.subscribed) {
 			System.out.println(this.id+" FORCED LEAVING");
 			if(!(this.predecessor == null)) {
+				this.message_stats.record(MessageStats.MessageType.LEAVE, this.id, MessageStats.idsMessageBytes(1));
 				ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 				ScheduleParameters scheduleParameters = ScheduleParameters
 						.createOneTime(schedule.getTickCount() + Utils.getNextDelay(this.rnd, this.mean_packet_delay, this.maximum_allowed_delay)/1000);
@@ -983,7 +2064,7 @@ public class Node implements Comparable<Node>{
 		if(this.subscribed && !this.crashed) {
 			if (!this.successors.isEmpty()) {
 				if(this.successors.get(0).equals(successor)) {
-					this.successors.remove(0);
+					this.successors = this.successors.dropFirst(1);
 					if(!this.successors.isEmpty()) {
 						this.finger.setEntry(1, this.successors.get(0));
 					} else {
@@ -995,22 +2076,11 @@ public class Node implements Comparable<Node>{
 	}
 	
 	/**
-	 * Resets the lookup key and removes the outgoing edges
+	 * Resets the lookup key and removes the shown lookup hop
 	 */
 	public void resetLookupKey() {
 		this.lookup_key = null;
-		this.removeOutEdges();
-	}
-	
-	/**
-	 * Removes the outgoing edges
-	 */
-	public void removeOutEdges() {
-		Iterator<RepastEdge<Object>> iterator = this.viewNet.getOutEdges(this).iterator();
-		while(iterator.hasNext()) {
-			RepastEdge<Object> edge = iterator.next();
-			this.viewNet.removeEdge(edge);
-		}
+		this.path_view.clear(this);
 	}
 	
 	/**
@@ -1021,6 +2091,46 @@ public class Node implements Comparable<Node>{
 		return this.hash_size;
 	}
 	
+	/**
+	 * Returns the number of entries of the finger table
+	 * @return the number of entries of the finger table
+	 */
+	public int getFingerSize() {
+		return this.finger_size;
+	}
+	
+	/**
+	 * Returns the number of nodes currently in the ring
+	 * @return the number of nodes currently in the ring
+	 */
+	public int getRingSize() {
+		return this.top.getActiveNodesNumber();
+	}
+	
+	/**
+	 * Returns the physical node running this (virtual) node
+	 * @return the host, null if the node is not grouped
+	 */
+	public Host getHost() {
+		return this.host;
+	}
+	
+	/**
+	 * Sets the physical node running this (virtual) node
+	 * @param host the host, null to ungroup the node
+	 */
+	public void setHost(Host host) {
+		this.host = host;
+	}
+	
+	/**
+	 * Returns the number of successor and key-value requests served by the node
+	 * @return the number of requests served
+	 */
+	public long getRequestsServed() {
+		return this.requests_served;
+	}
+	
 	/**
 	 * Returns the node id
 	 * @return the node id
@@ -1072,7 +2182,7 @@ public class Node implements Comparable<Node>{
 	 * Returns the data managed by the current node
 	 * @return the data managed by the current node
 	 */
-	public HashMap<Integer, String> getData() {
+	public TreeMap<Integer, String> getData() {
 		return this.data;
 	}
 	
@@ -1084,6 +2194,22 @@ public class Node implements Comparable<Node>{
 		return this.data.size();
 	}
 	
+	/**
+	 * Returns the number of messages sent by the current node
+	 * @return the number of messages sent by the current node
+	 */
+	public long getMessagesSent() {
+		return this.message_stats.getNodeMessages(this.id);
+	}
+	
+	/**
+	 * Returns the estimated bytes sent by the current node
+	 * @return the estimated bytes sent by the current node
+	 */
+	public long getBytesSent() {
+		return this.message_stats.getNodeBytes(this.id);
+	}
+	
 	/**
 	 * Returns the lookup key
 	 * @return the lookup key
@@ -1122,10 +2248,136 @@ public class Node implements Comparable<Node>{
 	 * Returns the successors list of the current node
 	 * @return the successors list of the current node
 	 */
-	public ArrayList<Node> getSuccessors() {
+	public SuccessorList getSuccessors() {
 		return this.successors;
 	}
 	
+	/**
+	 * Replaces the successors list of the current node, used to build rings whose successors lists are already converged
+	 * @param successors the new successors list
+	 */
+	void setSuccessors(SuccessorList successors) {
+		this.successors = successors;
+		if(!successors.isEmpty()) {
+			this.finger.setEntry(1, successors.get(0));
+		}
+	}
+	
+	/**
+	 * Writes the state of the node (flags, finger table, successors, predecessor, data, requests served, remaining recovery time,
+	 * RTT estimates and failure detector state) in binary format; nodes are written as ids.
+	 * The ongoing lookups, key-value operations and range queries are not part of the state, nor are the versions of the successors list
+	 * already advertised to the predecessor (the first stabilization after the resume sends the whole list)
+	 * @param out the output stream
+	 * @throws IOException if the state cannot be written
+	 */
+	public void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(this.id);
+		out.writeBoolean(this.initialized);
+		out.writeBoolean(this.subscribed);
+		out.writeBoolean(this.crashed);
+		out.writeBoolean(this.stabphase);
+		out.writeInt(this.next);
+		out.writeInt(this.predecessor == null ? -1 : this.predecessor.getId());
+		out.writeInt(this.last_stabilized_succ == null ? -1 : this.last_stabilized_succ.getId());
+		
+		ArrayList<Integer> indices = this.finger.getKeys(false);
+		out.writeInt(indices.size());
+		for(int index: indices) {
+			out.writeInt(index);
+			out.writeInt(this.finger.getEntry(index).getId());
+		}
+		
+		out.writeInt(this.successors.size());
+		for(Node succ: this.successors) {
+			out.writeInt(succ.getId());
+		}
+		
+		out.writeInt(this.data.size());
+		for(Integer key: this.data.keySet()) {
+			out.writeInt(key);
+			out.writeUTF(this.data.get(key));
+		}
+		
+		double tick = RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+		out.writeLong(this.requests_served);
+		out.writeDouble(this.crashed ? Math.max(this.recovery_tick - tick, 0) : 0);
+		this.rtt.writeState(out);
+		out.writeBoolean(this.failure_detector != null);
+		if(this.failure_detector != null) {
+			this.failure_detector.writeState(out, tick);
+		}
+	}
+	
+	/**
+	 * Restores the state written by writeState (the id has already been read to select the node)
+	 * @param in the input stream
+	 * @param top reference to the TopologyBuilder, used to resolve the node ids
+	 * @throws IOException if the state cannot be read
+	 */
+	public void readState(DataInputStream in, TopologyBuilder top) throws IOException {
+		this.clearAll();
+		this.initialized = in.readBoolean();
+		this.subscribed = in.readBoolean();
+		this.crashed = in.readBoolean();
+		this.stabphase = in.readBoolean();
+		this.next = in.readInt();
+		int pred_id = in.readInt();
+		this.predecessor = pred_id == -1 ? null : top.getNode(pred_id);
+		int last_id = in.readInt();
+		this.last_stabilized_succ = last_id == -1 ? null : top.getNode(last_id);
+		
+		int fingers = in.readInt();
+		for(int i=0; i < fingers; i++) {
+			int index = in.readInt();
+			this.finger.setEntry(index, top.getNode(in.readInt()));
+		}
+		
+		int succ_count = in.readInt();
+		SuccessorList.Builder successors = new SuccessorList.Builder(succ_count);
+		for(int i=0; i < succ_count; i++) {
+			successors.add(top.getNode(in.readInt()));
+		}
+		this.successors = successors.build();
+		
+		int data_count = in.readInt();
+		for(int i=0; i < data_count; i++) {
+			int data_key = in.readInt();
+			this.data.put(data_key, in.readUTF());
+		}
+		
+		double tick = RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+		this.requests_served = in.readLong();
+		this.recovery_tick = tick + in.readDouble();
+		this.rtt.readState(in);
+		if(in.readBoolean()) {
+			if(this.failure_detector == null) {
+				throw new IOException("checkpoint taken with a failure detector");
+			}
+			this.failure_detector.readState(in, tick);
+		} else if(this.failure_detector != null) {
+			throw new IOException("checkpoint taken without failure detector");
+		}
+	}
+	
+	/**
+	 * Schedules the periodic events of a node restored from a checkpoint: recovery after the remaining time if crashed, stabilization and crash otherwise
+	 */
+	public void resumeSchedule() {
+		if(this.subscribed) {
+			ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+			if(this.crashed) {
+				ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(this.recovery_tick);
+				schedule.schedule(scheduleParams, this, "recovery");
+			} else {
+				this.schedule_stabilization();
+				if(this.initialized) {
+					this.scheduleNodeCrash();
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Debug function printing all node information
 	 */
@@ -1146,7 +2398,7 @@ public class Node implements Comparable<Node>{
 	 * @param nodes list of nodes to print
 	 * @return a printable version of the list
 	 */
-	public String printableNodeList(ArrayList<Node> nodes) {
+	public String printableNodeList(List<Node> nodes) {
 		String successors_list = "[";
 		for(Node succ: nodes) {
 			successors_list += " "+succ.getId();
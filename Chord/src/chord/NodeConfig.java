@@ -0,0 +1,454 @@
+package chord;
+
+/**
+ * This class groups the protocol settings shared by all the nodes of a simulation (identifier space, crash model, stabilization,
+ * lookups, timeouts and failure detection). It is immutable and built once through a Builder, which sets the values by name
+ * and checks that they are consistent
+ */
+public class NodeConfig {
+	private final int hash_size;
+	private final double crash_pr;
+	private final double crash_scheduling_interval;
+	private final double recovery_interval;
+	private final int successors_size;
+	private final double stab_offset;
+	private final int stab_amplitude;
+	private final boolean multi_finger_repair;
+	private final boolean fast_join;
+	private final int finger_base;
+	private final int lookup_parallelism;
+	private final double mean_packet_delay;
+	private final double maximum_allowed_delay;
+	private final boolean adaptive_timeouts;
+	private final double min_timeout;
+	private final String failure_detector;
+	private final double detector_interval;
+	private final double heartbeat_timeout;
+	private final double phi_threshold;
+	private final boolean delta_successors;
+	
+	/**
+	 * Private constructor, use Builder
+	 * @param builder the builder holding the settings
+	 */
+	private NodeConfig(Builder builder) {
+		this.hash_size = builder.hash_size;
+		this.crash_pr = builder.crash_pr;
+		this.crash_scheduling_interval = builder.crash_scheduling_interval;
+		this.recovery_interval = builder.recovery_interval;
+		this.successors_size = builder.successors_size;
+		this.stab_offset = builder.stab_offset;
+		this.stab_amplitude = builder.stab_amplitude;
+		this.multi_finger_repair = builder.multi_finger_repair;
+		this.fast_join = builder.fast_join;
+		this.finger_base = builder.finger_base;
+		this.lookup_parallelism = builder.lookup_parallelism;
+		this.mean_packet_delay = builder.mean_packet_delay;
+		this.maximum_allowed_delay = builder.maximum_allowed_delay;
+		this.adaptive_timeouts = builder.adaptive_timeouts;
+		this.min_timeout = builder.min_timeout;
+		this.failure_detector = builder.failure_detector;
+		this.detector_interval = builder.detector_interval;
+		this.heartbeat_timeout = builder.heartbeat_timeout <= 0 ? 2*builder.detector_interval : builder.heartbeat_timeout;
+		this.phi_threshold = builder.phi_threshold;
+		this.delta_successors = builder.delta_successors;
+	}
+	
+	/**
+	 * Returns a new failure detector of the configured type, monitoring up to twice the fingers and successors of a node
+	 * @return the failure detector, null if no detector is configured
+	 */
+	public FailureDetector createFailureDetector() {
+		int capacity = 2*(FingerTable.size(this.hash_size, this.finger_base)+this.successors_size);
+		return FailureDetector.create(this.failure_detector, capacity, this.heartbeat_timeout, this.phi_threshold, this.detector_interval);
+	}
+	
+	/**
+	 * Returns the number of bits of the hash used for identifiers
+	 * @return the number of bits of the identifiers
+	 */
+	public int getHashSize() {
+		return this.hash_size;
+	}
+	
+	/**
+	 * Returns the probability of node crash
+	 * @return the probability of node crash
+	 */
+	public double getCrashPr() {
+		return this.crash_pr;
+	}
+	
+	/**
+	 * Returns the interval for probabilistic crash scheduling
+	 * @return the interval between two crash draws (ticks)
+	 */
+	public double getCrashSchedulingInterval() {
+		return this.crash_scheduling_interval;
+	}
+	
+	/**
+	 * Returns the number of ticks needed for recovery
+	 * @return the recovery interval (ticks)
+	 */
+	public double getRecoveryInterval() {
+		return this.recovery_interval;
+	}
+	
+	/**
+	 * Returns the size of the successors list
+	 * @return the size of the successors list
+	 */
+	public int getSuccessorsSize() {
+		return this.successors_size;
+	}
+	
+	/**
+	 * Returns the minimum offset between stabilizations
+	 * @return the stabilization offset (ticks)
+	 */
+	public double getStabOffset() {
+		return this.stab_offset;
+	}
+	
+	/**
+	 * Returns the maximum interval added to the stabilization offset
+	 * @return the stabilization amplitude (ticks)
+	 */
+	public int getStabAmplitude() {
+		return this.stab_amplitude;
+	}
+	
+	/**
+	 * Returns if, after each finger repair, all the following fingers resolved by the same node are filled
+	 * @return true if multiple fingers are repaired at once, false otherwise
+	 */
+	public boolean isMultiFingerRepair() {
+		return this.multi_finger_repair;
+	}
+	
+	/**
+	 * Returns if the finger table and the successors list are bootstrapped from the successor state when joining
+	 * @return true if the fast join is enabled, false otherwise
+	 */
+	public boolean isFastJoin() {
+		return this.fast_join;
+	}
+	
+	/**
+	 * Returns the base of the finger table
+	 * @return the finger base (2 for the classic layout)
+	 */
+	public int getFingerBase() {
+		return this.finger_base;
+	}
+	
+	/**
+	 * Returns the number of nodes queried concurrently at each step of a lookup
+	 * @return the lookup parallelism (1 for the classic iterative lookup)
+	 */
+	public int getLookupParallelism() {
+		return this.lookup_parallelism;
+	}
+	
+	/**
+	 * Returns the lambda of the exponential distribution of the packet delays
+	 * @return the mean packet delay (ms)
+	 */
+	public double getMeanPacketDelay() {
+		return this.mean_packet_delay;
+	}
+	
+	/**
+	 * Returns the maximum packet delay, also used as timeout
+	 * @return the maximum packet delay (ms)
+	 */
+	public double getMaximumAllowedDelay() {
+		return this.maximum_allowed_delay;
+	}
+	
+	/**
+	 * Returns if the timeouts are derived from the round trip times measured towards each peer
+	 * @return true if the timeouts are adaptive, false otherwise
+	 */
+	public boolean isAdaptiveTimeouts() {
+		return this.adaptive_timeouts;
+	}
+	
+	/**
+	 * Returns the minimum timeout when the timeouts are adaptive
+	 * @return the minimum timeout (ms)
+	 */
+	public double getMinTimeout() {
+		return this.min_timeout;
+	}
+	
+	/**
+	 * Returns the ticks between two heartbeats sent to every finger and successor
+	 * @return the detector interval (ticks)
+	 */
+	public double getDetectorInterval() {
+		return this.detector_interval;
+	}
+	
+	/**
+	 * Returns if the successors list is exchanged as a delta w.r.t. the version already known by the predecessor
+	 * @return true if the successors lists are exchanged as deltas, false otherwise
+	 */
+	public boolean isDeltaSuccessors() {
+		return this.delta_successors;
+	}
+	
+	/**
+	 * This class collects the protocol settings by name; the unset ones keep the classic Chord behaviour
+	 * (finger base 2, iterative lookups, fixed timeouts, no failure detector, whole successors lists)
+	 */
+	public static class Builder {
+		private int hash_size = 5;
+		private double crash_pr = 0;
+		private double crash_scheduling_interval = Double.MAX_VALUE;
+		private double recovery_interval = 0;
+		private int successors_size = 1;
+		private double stab_offset = 0;
+		private int stab_amplitude = 0;
+		private boolean multi_finger_repair = false;
+		private boolean fast_join = false;
+		private int finger_base = 2;
+		private int lookup_parallelism = 1;
+		private double mean_packet_delay = 0;
+		private double maximum_allowed_delay = 0;
+		private boolean adaptive_timeouts = false;
+		private double min_timeout = 0;
+		private String failure_detector = "none";
+		private double detector_interval = 0;
+		private double heartbeat_timeout = 0;
+		private double phi_threshold = 0;
+		private boolean delta_successors = false;
+		
+		/**
+		 * Sets the number of bits of the hash used for identifiers
+		 * @param hash_size number of bits of the identifiers
+		 * @return the builder itself
+		 */
+		public Builder setHashSize(int hash_size) {
+			this.hash_size = hash_size;
+			return this;
+		}
+		
+		/**
+		 * Sets the probability of node crash
+		 * @param crash_pr the probability of node crash
+		 * @return the builder itself
+		 */
+		public Builder setCrashPr(double crash_pr) {
+			this.crash_pr = crash_pr;
+			return this;
+		}
+		
+		/**
+		 * Sets the interval for probabilistic crash scheduling
+		 * @param crash_scheduling_interval the interval for probabilistic crash scheduling
+		 * @return the builder itself
+		 */
+		public Builder setCrashSchedulingInterval(double crash_scheduling_interval) {
+			this.crash_scheduling_interval = crash_scheduling_interval;
+			return this;
+		}
+		
+		/**
+		 * Sets the number of ticks needed for recovery
+		 * @param recovery_interval the number of ticks needed for recovery
+		 * @return the builder itself
+		 */
+		public Builder setRecoveryInterval(double recovery_interval) {
+			this.recovery_interval = recovery_interval;
+			return this;
+		}
+		
+		/**
+		 * Sets the size of the successors list
+		 * @param successors_size size of the successors list
+		 * @return the builder itself
+		 */
+		public Builder setSuccessorsSize(int successors_size) {
+			this.successors_size = successors_size;
+			return this;
+		}
+		
+		/**
+		 * Sets the minimum offset between stabilizations
+		 * @param stab_offset the minimum offset between stabilizations
+		 * @return the builder itself
+		 */
+		public Builder setStabOffset(double stab_offset) {
+			this.stab_offset = stab_offset;
+			return this;
+		}
+		
+		/**
+		 * Sets the maximum interval to be added to the stabilization offset
+		 * @param stab_amplitude the maximum interval to be added to the stabilization offset
+		 * @return the builder itself
+		 */
+		public Builder setStabAmplitude(int stab_amplitude) {
+			this.stab_amplitude = stab_amplitude;
+			return this;
+		}
+		
+		/**
+		 * Sets if, after each finger repair, all the following fingers resolved by the same node are filled
+		 * @param multi_finger_repair true to repair multiple fingers at once
+		 * @return the builder itself
+		 */
+		public Builder setMultiFingerRepair(boolean multi_finger_repair) {
+			this.multi_finger_repair = multi_finger_repair;
+			return this;
+		}
+		
+		/**
+		 * Sets if the finger table and the successors list are bootstrapped from the successor state when joining
+		 * @param fast_join true to enable the fast join
+		 * @return the builder itself
+		 */
+		public Builder setFastJoin(boolean fast_join) {
+			this.fast_join = fast_join;
+			return this;
+		}
+		
+		/**
+		 * Sets the base of the finger table
+		 * @param finger_base base of the finger table (2 for the classic layout)
+		 * @return the builder itself
+		 */
+		public Builder setFingerBase(int finger_base) {
+			this.finger_base = finger_base;
+			return this;
+		}
+		
+		/**
+		 * Sets the number of nodes queried concurrently at each step of a lookup
+		 * @param lookup_parallelism lookup parallelism (1 for the classic iterative lookup)
+		 * @return the builder itself
+		 */
+		public Builder setLookupParallelism(int lookup_parallelism) {
+			this.lookup_parallelism = lookup_parallelism;
+			return this;
+		}
+		
+		/**
+		 * Sets the lambda of the exponential distribution of the packet delays
+		 * @param mean_packet_delay the lambda of the exponential distribution of the packet delays
+		 * @return the builder itself
+		 */
+		public Builder setMeanPacketDelay(double mean_packet_delay) {
+			this.mean_packet_delay = mean_packet_delay;
+			return this;
+		}
+		
+		/**
+		 * Sets the maximum packet delay (ms), also used as timeout
+		 * @param maximum_allowed_delay the maximum packet delay (ms), also used as timeout
+		 * @return the builder itself
+		 */
+		public Builder setMaximumAllowedDelay(double maximum_allowed_delay) {
+			this.maximum_allowed_delay = maximum_allowed_delay;
+			return this;
+		}
+		
+		/**
+		 * Sets if the timeouts are derived from the round trip times measured towards each peer
+		 * @param adaptive_timeouts if the timeouts are derived from the round trip times measured towards each peer
+		 * @return the builder itself
+		 */
+		public Builder setAdaptiveTimeouts(boolean adaptive_timeouts) {
+			this.adaptive_timeouts = adaptive_timeouts;
+			return this;
+		}
+		
+		/**
+		 * Sets the minimum timeout (ms) when the timeouts are adaptive
+		 * @param min_timeout the minimum timeout (ms) when the timeouts are adaptive
+		 * @return the builder itself
+		 */
+		public Builder setMinTimeout(double min_timeout) {
+			this.min_timeout = min_timeout;
+			return this;
+		}
+		
+		/**
+		 * Sets the type of the failure detector: "none", "heartbeat" or "phi"
+		 * @param failure_detector the type of the failure detector: "none", "heartbeat" or "phi"
+		 * @return the builder itself
+		 */
+		public Builder setFailureDetector(String failure_detector) {
+			this.failure_detector = failure_detector;
+			return this;
+		}
+		
+		/**
+		 * Sets the ticks between two heartbeats sent to every finger and successor
+		 * @param detector_interval the ticks between two heartbeats sent to every finger and successor
+		 * @return the builder itself
+		 */
+		public Builder setDetectorInterval(double detector_interval) {
+			this.detector_interval = detector_interval;
+			return this;
+		}
+		
+		/**
+		 * Sets the ticks without answers after which a peer is suspected (heartbeat), 0 for twice the detector interval
+		 * @param heartbeat_timeout the ticks without answers after which a peer is suspected (heartbeat), 0 for twice the detector interval
+		 * @return the builder itself
+		 */
+		public Builder setHeartbeatTimeout(double heartbeat_timeout) {
+			this.heartbeat_timeout = heartbeat_timeout;
+			return this;
+		}
+		
+		/**
+		 * Sets the suspicion level above which a peer is suspected (phi)
+		 * @param phi_threshold the suspicion level above which a peer is suspected (phi)
+		 * @return the builder itself
+		 */
+		public Builder setPhiThreshold(double phi_threshold) {
+			this.phi_threshold = phi_threshold;
+			return this;
+		}
+		
+		/**
+		 * Sets if the successors list is exchanged as a delta w.r.t. the version already known by the predecessor
+		 * @param delta_successors true to exchange the successors lists as deltas
+		 * @return the builder itself
+		 */
+		public Builder setDeltaSuccessors(boolean delta_successors) {
+			this.delta_successors = delta_successors;
+			return this;
+		}
+		
+		/**
+		 * Checks the settings and returns the configuration; a warning is printed if the failure detector cannot suspect
+		 * a crashed peer before its recovery
+		 * @return the configuration
+		 * @throws RuntimeException if the settings are not consistent
+		 */
+		public NodeConfig build() {
+			if (this.finger_base < 2) {
+				throw new RuntimeException("Error, the finger base must be at least 2");
+			}
+			//every finger and successor of a node is sent a heartbeat every detector_interval ticks, independently of the stabilization rounds
+			if (this.detector_interval <= 0 && !this.failure_detector.equals("none")) {
+				throw new RuntimeException("Error, the failure detector needs a positive interval between two heartbeats");
+			}
+			NodeConfig config = new NodeConfig(this);
+			if (config.failure_detector.equals("heartbeat") && config.heartbeat_timeout <= config.detector_interval) {
+				throw new RuntimeException("Error, the heartbeat timeout must exceed the "+config.detector_interval+" ticks between two heartbeats to a peer");
+			}
+			//a crashed peer is evicted only if it is suspected before its recovery (phi suspects after about threshold/log10(e) mean intervals)
+			double suspicion_time = config.failure_detector.equals("phi") ? config.phi_threshold/Math.log10(Math.E)*config.detector_interval : config.heartbeat_timeout;
+			if (!config.failure_detector.equals("none") && suspicion_time >= config.recovery_interval) {
+				System.out.println("Warning: the crashed peers are suspected after ~"+suspicion_time+" ticks, not before their recovery ("+config.recovery_interval+" ticks)");
+			}
+			return config;
+		}
+	}
+}
@@ -2,15 +2,38 @@ package chord;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.util.HashMap;
 
 import repast.simphony.visualizationOGL2D.DefaultStyleOGL2D;
 import saf.v3d.scene.Position;
 import saf.v3d.scene.VSpatial;
 
 /**
- * This class defines the style of the nodes in the simulator
+ * This class defines the style of the nodes in the simulator.
+ * Labels are cached and rebuilt only when the state they show changes; when the ring is large the finger table
+ * is dropped from the labels and, above a further threshold or when the font would be unreadable, labels are not drawn at all.
  */
 public class NodeStyle extends DefaultStyleOGL2D {
+	private static final int FINGER_DETAIL_MAX_NODES = 64;
+	private static final int LABEL_MAX_NODES = 256;
+	private static final int MIN_FONT_SIZE = 6;
+	private static final Color TRANSPARENT = new Color(0, 0, 0, 1);
+	
+	/**
+	 * Label of a node together with the state it has been built from
+	 */
+	private static class CachedLabel {
+		private boolean finger_detail;
+		private int finger_version;
+		private int successor_id;
+		private int predecessor_id;
+		private Integer lookup_key;
+		private String label;
+	}
+	
+	private HashMap<Node, CachedLabel> labels = new HashMap<>();
+	private HashMap<Node, float[]> offsets = new HashMap<>();
+	private Font font = null;
 	
 	@Override
 	public VSpatial getVSpatial(Object object, VSpatial spatial) {
@@ -38,7 +61,7 @@ public class NodeStyle extends DefaultStyleOGL2D {
 					return Color.ORANGE;
 				}
 			} else {
-				return new Color(0, 0, 0, 1);
+				return TRANSPARENT;
 			}
 		}
 		return null;
@@ -48,14 +71,40 @@ public class NodeStyle extends DefaultStyleOGL2D {
 	public String getLabel(Object object) {
 		if(object instanceof Node) {
 			Node n = (Node)object;
-			String label = "Id: "+ (n.getId() < 10 || n.getId() > 99 ? String.valueOf(n.getId())+"  " : String.valueOf(n.getId()));
-			label += "\nFinger:";
-			label += n.getFinger().toString();
-			label += "\nSucc: "+(n.getSuccessors().isEmpty() ? "-" : n.getSuccessors().get(0).getId());
-			label += "\nPred: "+(n.getPredecessor() == null ? "-" : n.getPredecessor().getId());
-			label += "\nKey: "+(n.getLookupKey() == null ? "-" : n.getLookupKey());
-				
-			return label;
+			int ring_size = n.getRingSize();
+			if(ring_size > LABEL_MAX_NODES || 120/n.getHashSize() < MIN_FONT_SIZE) {
+				return null;
+			}
+			boolean finger_detail = ring_size <= FINGER_DETAIL_MAX_NODES;
+			int successor_id = n.getSuccessors().isEmpty() ? -1 : n.getSuccessors().get(0).getId();
+			int predecessor_id = n.getPredecessor() == null ? -1 : n.getPredecessor().getId();
+			
+			CachedLabel cached = this.labels.get(n);
+			if(cached == null) {
+				cached = new CachedLabel();
+				this.labels.put(n, cached);
+			} else if(cached.finger_detail == finger_detail && cached.finger_version == n.getFinger().getVersion() && cached.successor_id == successor_id
+					&& cached.predecessor_id == predecessor_id && (cached.lookup_key == null ? n.getLookupKey() == null : cached.lookup_key.equals(n.getLookupKey()))) {
+				return cached.label;
+			}
+			
+			StringBuilder label = new StringBuilder();
+			label.append("Id: ").append(n.getId() < 10 || n.getId() > 99 ? String.valueOf(n.getId())+"  " : String.valueOf(n.getId()));
+			if(finger_detail) {
+				label.append("\nFinger:");
+				label.append(n.getFinger().toString());
+			}
+			label.append("\nSucc: ").append(successor_id == -1 ? "-" : String.valueOf(successor_id));
+			label.append("\nPred: ").append(predecessor_id == -1 ? "-" : String.valueOf(predecessor_id));
+			label.append("\nKey: ").append(n.getLookupKey() == null ? "-" : String.valueOf(n.getLookupKey()));
+			
+			cached.finger_detail = finger_detail;
+			cached.finger_version = n.getFinger().getVersion();
+			cached.successor_id = successor_id;
+			cached.predecessor_id = predecessor_id;
+			cached.lookup_key = n.getLookupKey();
+			cached.label = label.toString();
+			return cached.label;
 		}
 		return null;
 	}
@@ -67,17 +116,20 @@ public class NodeStyle extends DefaultStyleOGL2D {
 			if(n.isSubscribed()) {
 				return Color.BLACK;
 			} else {
-				return new Color(0, 0, 0, 1);
+				return TRANSPARENT;
 			}
 		}
 	    return null;
 	  }
-
+	
 	@Override
 	public Font getLabelFont(Object object) {
 		if(object instanceof Node) {
-			Node n = (Node)object;
-			return new Font("Calibri", Font.PLAIN, (int)(120*(1f/n.getHashSize())));
+			if(this.font == null) {
+				Node n = (Node)object;
+				this.font = new Font("Calibri", Font.PLAIN, (int)(120*(1f/n.getHashSize())));
+			}
+			return this.font;
 		}
 		return null;
 	}
@@ -90,10 +142,7 @@ public class NodeStyle extends DefaultStyleOGL2D {
 	@Override
 	public float getLabelXOffset(Object object) {
 	    if(object instanceof Node) {
-	    	Node node = (Node) object;
-	    	int num_nodes = Double.valueOf(Math.pow(2, node.getHashSize())).intValue();
-	    	int sign = (node.getId() % 2 == 0) ? - 1 : +1;
-	    	return sign*62f*String.valueOf(num_nodes).length()*Float.valueOf(String.valueOf(Math.sin(Math.toRadians((360.0/num_nodes)*node.getId()))));
+	    	return this.getOffsets((Node) object)[0];
 	    }
 		return 0;
 	}
@@ -101,11 +150,26 @@ public class NodeStyle extends DefaultStyleOGL2D {
 	@Override
 	public float getLabelYOffset(Object object) {
 		if(object instanceof Node) {
-	    	Node node = (Node) object;
-	    	int num_nodes = Double.valueOf(Math.pow(2, node.getHashSize())).intValue();
-	    	int sign = (node.getId() % 2 == 0) ? + 1 : -1;
-	    	return sign*62f*String.valueOf(num_nodes).length()*Float.valueOf(String.valueOf(Math.cos(Math.toRadians((360.0/num_nodes)*node.getId()))));
+			return this.getOffsets((Node) object)[1];
 	    }
 		return 0;
 	}
+	
+	/**
+	 * Returns the label offsets of the given node, computing them the first time
+	 * @param node the node of interest
+	 * @return the x and y offsets of the label
+	 */
+	private float[] getOffsets(Node node) {
+		float[] offset = this.offsets.get(node);
+		if(offset == null) {
+			int num_nodes = Double.valueOf(Math.pow(2, node.getHashSize())).intValue();
+			double angle = Math.toRadians((360.0/num_nodes)*node.getId());
+			int sign = (node.getId() % 2 == 0) ? - 1 : +1;
+			float distance = 62f*String.valueOf(num_nodes).length();
+			offset = new float[] {sign*distance*(float) Math.sin(angle), -sign*distance*(float) Math.cos(angle)};
+			this.offsets.put(node, offset);
+		}
+		return offset;
+	}
 }
@@ -0,0 +1,52 @@
+package chord;
+
+/**
+ * This class defines a phi accrual failure detector: the time between two answers of a peer is modelled as an exponential
+ * distribution whose mean is estimated with an exponentially weighted moving average, and the peer is suspected when
+ * phi = -log10(P(no answer for the elapsed time)) exceeds the threshold. The mean is never lower than the interval between two heartbeats,
+ * so that answers arriving close together do not make the detector too aggressive.
+ * A crashed peer is suspected after about threshold/log10(e) mean intervals.
+ */
+public class PhiAccrualFailureDetector extends FailureDetector {
+	private static final double WEIGHT = 0.1;
+	
+	private double threshold;
+	private double initial_interval;
+	
+	/**
+	 * Public constructor
+	 * @param capacity maximum number of monitored peers
+	 * @param threshold suspicion level above which a peer is suspected
+	 * @param initial_interval ticks between two heartbeats, used as mean before any interval is measured and as its minimum
+	 */
+	public PhiAccrualFailureDetector(int capacity, double threshold, double initial_interval) {
+		super(capacity);
+		this.threshold = threshold;
+		this.initial_interval = initial_interval;
+	}
+	
+	@Override
+	protected double[] newState(double tick) {
+		return new double[] {tick, this.initial_interval};
+	}
+	
+	@Override
+	protected void update(double[] state, double tick) {
+		state[1] = Math.max((1-WEIGHT)*state[1] + WEIGHT*(tick - state[0]), this.initial_interval);
+	}
+	
+	@Override
+	protected boolean suspect(double[] state, double elapsed) {
+		return this.phi(state, elapsed) > this.threshold;
+	}
+	
+	/**
+	 * Returns the suspicion level of a peer
+	 * @param state the state of the peer
+	 * @param elapsed ticks since the last answer
+	 * @return the suspicion level
+	 */
+	private double phi(double[] state, double elapsed) {
+		return Math.max(elapsed, 0)/state[1]*Math.log10(Math.E);
+	}
+}
@@ -0,0 +1,235 @@
+package chord;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import repast.simphony.engine.environment.RunEnvironment;
+
+/**
+ * This class defines the Java Flight Recorder events of the protocol operations (category "Chord") and the methods emitting them.
+ * Every method checks if its event is enabled before filling it, so nothing is done when no recording is running.
+ */
+public class ProtocolEvents {
+	
+	/**
+	 * Fields common to all the protocol events
+	 */
+	@Category("Chord")
+	@StackTrace(false)
+	private static abstract class ProtocolEvent extends Event {
+		@Label("Tick")
+		protected double tick;
+		
+		@Label("Node")
+		protected int node;
+		
+		/**
+		 * Sets the common fields and commits the event
+		 * @param node id of the node performing the operation
+		 */
+		protected void commit(int node) {
+			this.tick = RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+			this.node = node;
+			this.commit();
+		}
+	}
+	
+	@Name("chord.Lookup")
+	@Label("Lookup")
+	@Description("A lookup has been completed")
+	private static class LookupEvent extends ProtocolEvent {
+		@Label("Key")
+		private int key;
+		
+		@Label("Hops")
+		private int hops;
+		
+		@Label("Timeouts")
+		private int timeouts;
+		
+		@Label("Duration (ticks)")
+		private double duration;
+		
+		@Label("Correct")
+		private boolean correct;
+	}
+	
+	@Name("chord.Stabilization")
+	@Label("Stabilization")
+	@Description("A node has received the answer of its first alive successor")
+	private static class StabilizationEvent extends ProtocolEvent {
+		@Label("Successor")
+		private int successor;
+	}
+	
+	@Name("chord.FingerRepair")
+	@Label("Finger Repair")
+	@Description("A finger table entry has been repaired")
+	private static class FingerRepairEvent extends ProtocolEvent {
+		@Label("Index")
+		private int index;
+		
+		@Label("Finger")
+		private int finger;
+		
+		@Label("Hops")
+		private int hops;
+	}
+	
+	@Name("chord.DataHandoff")
+	@Label("Data Handoff")
+	@Description("A node has transferred some keys to another node")
+	private static class DataHandoffEvent extends ProtocolEvent {
+		@Label("Receiver")
+		private int receiver;
+		
+		@Label("Keys")
+		private int keys;
+	}
+	
+	@Name("chord.Crash")
+	@Label("Crash")
+	@Description("A node has crashed")
+	private static class CrashEvent extends ProtocolEvent {
+	}
+	
+	@Name("chord.Recovery")
+	@Label("Recovery")
+	@Description("A crashed node is up again")
+	private static class RecoveryEvent extends ProtocolEvent {
+	}
+	
+	@Name("chord.ForcedLeave")
+	@Label("Forced Leave")
+	@Description("A node has left the ring because no successor was reachable")
+	private static class ForcedLeaveEvent extends ProtocolEvent {
+		@Label("Active Nodes")
+		private int active_nodes;
+	}
+	
+	@Name("chord.Suspicion")
+	@Label("Suspicion")
+	@Description("A peer suspected by the failure detector has been evicted from finger and successors")
+	private static class SuspicionEvent extends ProtocolEvent {
+		@Label("Peer")
+		private int peer;
+		
+		@Label("Crashed")
+		private boolean crashed;
+	}
+	
+	/**
+	 * Emits a lookup event
+	 * @param lookup the completed lookup
+	 */
+	public static void lookup(Lookup lookup) {
+		LookupEvent event = new LookupEvent();
+		if(event.isEnabled()) {
+			event.key = lookup.getKey();
+			event.hops = lookup.getPathLength();
+			event.timeouts = lookup.getTimeouts();
+			event.duration = lookup.getDuration();
+			event.correct = lookup.getResult();
+			event.commit(lookup.getNodeId());
+		}
+	}
+	
+	/**
+	 * Emits a stabilization event
+	 * @param node id of the stabilizing node
+	 * @param successor id of the first alive successor
+	 */
+	public static void stabilization(int node, int successor) {
+		StabilizationEvent event = new StabilizationEvent();
+		if(event.isEnabled()) {
+			event.successor = successor;
+			event.commit(node);
+		}
+	}
+	
+	/**
+	 * Emits a finger repair event
+	 * @param node id of the node
+	 * @param index index of the finger table entry
+	 * @param finger id of the new entry
+	 * @param hops length of the query path
+	 */
+	public static void fingerRepair(int node, int index, int finger, int hops) {
+		FingerRepairEvent event = new FingerRepairEvent();
+		if(event.isEnabled()) {
+			event.index = index;
+			event.finger = finger;
+			event.hops = hops;
+			event.commit(node);
+		}
+	}
+	
+	/**
+	 * Emits a data handoff event
+	 * @param node id of the sender
+	 * @param receiver id of the receiver
+	 * @param keys number of keys transferred
+	 */
+	public static void dataHandoff(int node, int receiver, int keys) {
+		DataHandoffEvent event = new DataHandoffEvent();
+		if(event.isEnabled()) {
+			event.receiver = receiver;
+			event.keys = keys;
+			event.commit(node);
+		}
+	}
+	
+	/**
+	 * Emits a crash event
+	 * @param node id of the crashed node
+	 */
+	public static void crash(int node) {
+		CrashEvent event = new CrashEvent();
+		if(event.isEnabled()) {
+			event.commit(node);
+		}
+	}
+	
+	/**
+	 * Emits a recovery event
+	 * @param node id of the recovered node
+	 */
+	public static void recovery(int node) {
+		RecoveryEvent event = new RecoveryEvent();
+		if(event.isEnabled()) {
+			event.commit(node);
+		}
+	}
+	
+	/**
+	 * Emits a forced leave event
+	 * @param node id of the leaving node
+	 * @param active_nodes number of nodes in the ring after the leave
+	 */
+	public static void forcedLeave(int node, int active_nodes) {
+		ForcedLeaveEvent event = new ForcedLeaveEvent();
+		if(event.isEnabled()) {
+			event.active_nodes = active_nodes;
+			event.commit(node);
+		}
+	}
+	
+	/**
+	 * Emits a suspicion event
+	 * @param node id of the suspecting node
+	 * @param peer id of the evicted peer
+	 * @param crashed true if the peer is actually crashed, false for a wrong suspicion
+	 */
+	public static void suspicion(int node, int peer, boolean crashed) {
+		SuspicionEvent event = new SuspicionEvent();
+		if(event.isEnabled()) {
+			event.peer = peer;
+			event.crashed = crashed;
+			event.commit(node);
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package chord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import repast.simphony.engine.environment.RunEnvironment;
+
+/**
+ * This class keeps track of a range query over the identifiers [from, to] (wrapping around the ring if from > to): the owner
+ * of from is found through find_successor, then the following owners are discovered from the successors lists returned with
+ * each fetch and asked for their keys in the range, with at most fanout fetches outstanding at the same time.
+ * The query is complete when the node responsible for to has answered (or the scan wrapped around the ring)
+ */
+public class RangeQuery {
+	private int from;
+	private int to;
+	private int ring_size;
+	private int fanout;
+	private int node_req_id;
+	private double starting_tick;
+	private int path_length;
+	private ArrayList<Node> chain;
+	private int next_fetch;
+	private int outstanding;
+	private boolean end_reached;
+	private int num_timeouts;
+	private boolean completed;
+	private double final_tick;
+	private TreeMap<Integer, String> result;
+	private CompletableFuture<RangeQuery> future;
+	private TopologyBuilder top;
+	
+	/**
+	 * Public constructor
+	 * @param from first key of the range
+	 * @param to last key of the range
+	 * @param ring_size number of identifiers in the ring
+	 * @param fanout maximum number of fetches outstanding at the same time
+	 * @param node_req_id id of the query initiator
+	 * @param tick starting simulation tick
+	 * @param top reference to the TopologyBuilder
+	 */
+	public RangeQuery(int from, int to, int ring_size, int fanout, int node_req_id, double tick, TopologyBuilder top) {
+		this.from = from;
+		this.to = to;
+		this.ring_size = ring_size;
+		this.fanout = Math.max(fanout, 1);
+		this.node_req_id = node_req_id;
+		this.starting_tick = tick;
+		this.top = top;
+		this.chain = new ArrayList<>();
+		this.next_fetch = 0;
+		this.outstanding = 0;
+		this.end_reached = false;
+		this.num_timeouts = 0;
+		this.completed = false;
+		this.result = new TreeMap<>();
+		this.future = new CompletableFuture<>();
+	}
+	
+	/**
+	 * Returns the clockwise distance of the given id from the beginning of the range
+	 * @param id the id of interest
+	 * @return the distance
+	 */
+	private int distance(int id) {
+		return Math.floorMod(id - this.from, this.ring_size);
+	}
+	
+	/**
+	 * Starts the scan from the owner of the first key of the range
+	 * @param owner the node responsible for from
+	 * @param path_length length of the path between the initiator and the owner
+	 */
+	public void start(Node owner, int path_length) {
+		this.path_length = path_length;
+		this.chain.add(owner);
+		this.end_reached = this.distance(this.to) <= this.distance(owner.getId());
+	}
+	
+	/**
+	 * Extends the chain of the owners to fetch with the successors of a fetched node
+	 * @param successors successors list of the fetched node
+	 */
+	private void extend(List<Node> successors) {
+		for(int i=0; i < successors.size() && !this.end_reached; i++) {
+			Node successor = successors.get(i);
+			Node tail = this.chain.get(this.chain.size()-1);
+			if(successor.equals(this.chain.get(0))) {
+				this.end_reached = true;
+			} else if(this.distance(successor.getId()) > this.distance(tail.getId())) {
+				this.chain.add(successor);
+				this.end_reached = this.distance(this.to) <= this.distance(successor.getId());
+			}
+		}
+	}
+	
+	/**
+	 * Returns the next owner to fetch, if the fan-out allows another fetch
+	 * @return the next owner to fetch, null if there is none or too many fetches are outstanding
+	 */
+	public Node nextFetch() {
+		if(this.outstanding >= this.fanout || this.next_fetch >= this.chain.size()) {
+			return null;
+		}
+		this.outstanding++;
+		return this.chain.get(this.next_fetch++);
+	}
+	
+	/**
+	 * Records the answer of a fetched owner
+	 * @param data the keys of the owner in the range
+	 * @param successors the successors list of the owner
+	 */
+	public void fetched(TreeMap<Integer, String> data, List<Node> successors) {
+		this.outstanding--;
+		this.result.putAll(data);
+		this.extend(successors);
+	}
+	
+	/**
+	 * Records a fetch that timed out
+	 */
+	public void timedOut() {
+		this.outstanding--;
+		this.num_timeouts++;
+	}
+	
+	/**
+	 * Returns if no fetch is outstanding and no owner is left to fetch
+	 * @return true if the scan is over, false otherwise
+	 */
+	public boolean isOver() {
+		return this.outstanding == 0 && this.next_fetch >= this.chain.size();
+	}
+	
+	/**
+	 * Completes the query and its future, unless it has already been completed
+	 * @param failed true if the owner of the first key could not be found or the initiator crashed or left
+	 */
+	public void complete(boolean failed) {
+		if(this.completed) {
+			return;
+		}
+		this.completed = true;
+		this.final_tick = RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+		if(failed) {
+			this.top.getLookupStats().record("range", -1, -1, 0, false);
+		} else {
+			this.top.getLookupStats().record("range", this.getDuration(), this.path_length+this.chain.size(), this.num_timeouts, this.isCovered());
+		}
+		this.future.complete(this);
+	}
+	
+	/**
+	 * Returns the future completed when the scan is over
+	 * @return the future of the query
+	 */
+	public CompletableFuture<RangeQuery> getFuture() {
+		return this.future;
+	}
+	
+	/**
+	 * Returns the first key of the range
+	 * @return the first key of the range
+	 */
+	public int getFrom() {
+		return this.from;
+	}
+	
+	/**
+	 * Returns the last key of the range
+	 * @return the last key of the range
+	 */
+	public int getTo() {
+		return this.to;
+	}
+	
+	/**
+	 * Returns the id of the query initiator
+	 * @return the id of the query initiator
+	 */
+	public int getNodeId() {
+		return this.node_req_id;
+	}
+	
+	/**
+	 * Returns the data collected, sorted by key
+	 * @return the data collected
+	 */
+	public TreeMap<Integer, String> getResult() {
+		return this.result;
+	}
+	
+	/**
+	 * Returns the number of owners fetched
+	 * @return the number of owners fetched
+	 */
+	public int getOwnersFetched() {
+		return this.next_fetch;
+	}
+	
+	/**
+	 * Returns if every owner of the range answered
+	 * @return true if the whole range has been covered, false otherwise
+	 */
+	public boolean isCovered() {
+		return this.completed && this.end_reached && this.num_timeouts == 0 && !this.chain.isEmpty();
+	}
+	
+	/**
+	 * Returns if the query has been completed
+	 * @return true if it has been completed, false otherwise
+	 */
+	public boolean isComplete() {
+		return this.completed;
+	}
+	
+	/**
+	 * Returns the duration of the query in ticks
+	 * @return the duration of the query, -1 if it has not been completed
+	 */
+	public double getDuration() {
+		return this.completed ? this.final_tick-this.starting_tick : -1;
+	}
+}
@@ -0,0 +1,188 @@
+package chord;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.util.collections.Pair;
+
+/**
+ * This class computes once per tick a summary of the state of the ring (node counts, missing and wrong successors of the live nodes, distribution
+ * of the stored keys) and appends it as a single CSV row, so that the size of the output does not depend on the number of nodes.
+ * The load balance of the physical nodes (keys stored and requests served by their virtual nodes) is reported next to the cumulative maintenance traffic
+ * and to the number of id reassignments of the item balancing.
+ * Optionally the full state of a fixed number of nodes, evenly spaced in the ring, is written in a second file.
+ */
+public class RingMetrics {
+	private static final String SUMMARY_HEADER = "tick,nodes,live,crashed,joining,missing_succ,wrong_succ,nodes_with_errors,data_min,data_p50,data_p90,data_p99,data_max,data_mean,data_var,hosts,host_data_max,host_data_mean,host_served_max,host_served_mean,maintenance_msgs,reassignments\n";
+	private static final String SAMPLE_HEADER = "tick,id,missing_succ,wrong_succ,crashed,subscribed,initialized,data_size\n";
+	
+	private TopologyBuilder top;
+	private int successors_size;
+	private int sample_size;
+	private BufferedWriter summary_writer;
+	private BufferedWriter sample_writer;
+	
+	/**
+	 * Public constructor: creates the output files
+	 * @param top reference to the TopologyBuilder
+	 * @param successors_size maximum size of the successors lists
+	 * @param file_prefix prefix of the output files
+	 * @param sample_size number of nodes whose state is written every tick (0 to disable the per-node file)
+	 */
+	public RingMetrics(TopologyBuilder top, int successors_size, String file_prefix, int sample_size) {
+		this.top = top;
+		this.successors_size = successors_size;
+		this.sample_size = sample_size;
+		try {
+			File summaryFile = new File(file_prefix+"_ring.csv");
+			System.out.println("Ring metrics file saved in " + summaryFile.getCanonicalPath());
+			this.summary_writer = new BufferedWriter(new FileWriter(summaryFile));
+			this.summary_writer.write(SUMMARY_HEADER);
+			if(sample_size > 0) {
+				File sampleFile = new File(file_prefix+"_node_sample.csv");
+				System.out.println("Node sample file saved in " + sampleFile.getCanonicalPath());
+				this.sample_writer = new BufferedWriter(new FileWriter(sampleFile));
+				this.sample_writer.write(SAMPLE_HEADER);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Computes the summary of the current tick and writes it: a first pass collects the live nodes, sorted by id, so that the
+	 * correct successors of each node are the live nodes following it in that ring and the second pass is O(N*S)
+	 * @param nodes the nodes in the ring (sorted by id)
+	 */
+	public void collect(Collection<Node> nodes) {
+		if(this.summary_writer == null) {
+			return;
+		}
+		double tick = RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+		int live = 0;
+		int crashed = 0;
+		int joining = 0;
+		long missing = 0;
+		long wrong = 0;
+		int with_errors = 0;
+		long data_total = 0;
+		double data_squares = 0;
+		int[] data_sizes = new int[nodes.size()];
+		int stride = this.sample_size > 0 ? Math.max(1, nodes.size()/this.sample_size) : 0;
+		StringBuilder sample = new StringBuilder();
+		
+		int[] live_ring = new int[nodes.size()];
+		int live_count = 0;
+		for(Node node: nodes) {
+			if(!node.isCrashed() && node.isInitialized()) {
+				live_ring[live_count++] = node.getId();
+			}
+		}
+		
+		int i = 0;
+		int next_live = 0; //index in live_ring of the first live node following the current one
+		ArrayList<Integer> right_succ = new ArrayList<>(this.successors_size);
+		for(Node node: nodes) {
+			boolean node_live = !node.isCrashed() && node.isInitialized();
+			while(next_live < live_count && live_ring[next_live] <= node.getId()) {
+				next_live++;
+			}
+			right_succ.clear();
+			int count = Math.min(this.successors_size, node_live ? live_count-1 : live_count);
+			for(int k=0; k < count; k++) {
+				right_succ.add(live_ring[(next_live+k) % live_count]);
+			}
+			if(right_succ.isEmpty()) {
+				right_succ.add(node.getId());
+			}
+			Pair<ArrayList<Integer>,ArrayList<Integer>> errors = TopologyBuilder.compareSuccessors(node.getSuccessors(), right_succ);
+			int node_missing = errors.getFirst().size();
+			int node_wrong = errors.getSecond().size();
+			if(node_live) { //the lists of crashed and joining nodes are stale by definition
+				missing += node_missing;
+				wrong += node_wrong;
+				if(node_missing+node_wrong > 0) {
+					with_errors++;
+				}
+			}
+			
+			if(node.isCrashed()) {
+				crashed++;
+			} else if(!node.isInitialized()) {
+				joining++;
+			} else {
+				live++;
+			}
+			
+			int data_size = node.getDataSize();
+			data_sizes[i] = data_size;
+			data_total += data_size;
+			data_squares += (double) data_size*data_size;
+			
+			if(stride > 0 && i % stride == 0 && i/stride < this.sample_size) {
+				sample.append(tick).append(',').append(node.getId()).append(',').append(node_missing).append(',').append(node_wrong).append(',')
+					.append(node.isCrashed()).append(',').append(node.isSubscribed()).append(',').append(node.isInitialized()).append(',').append(data_size).append('\n');
+			}
+			i++;
+		}
+		Arrays.sort(data_sizes);
+		long[] balance = Host.balance(nodes);
+		
+		StringBuilder row = new StringBuilder();
+		row.append(tick).append(',').append(nodes.size()).append(',').append(live).append(',').append(crashed).append(',').append(joining).append(',')
+			.append(missing).append(',').append(wrong).append(',').append(with_errors).append(',')
+			.append(percentile(data_sizes, 0)).append(',').append(percentile(data_sizes, 50)).append(',').append(percentile(data_sizes, 90)).append(',')
+			.append(percentile(data_sizes, 99)).append(',').append(percentile(data_sizes, 100)).append(',')
+			.append(data_sizes.length == 0 ? 0 : (double) data_total/data_sizes.length).append(',')
+			.append(data_sizes.length == 0 ? 0 : data_squares/data_sizes.length - Math.pow((double) data_total/data_sizes.length, 2)).append(',')
+			.append(balance[0]).append(',').append(balance[1]).append(',').append(balance[0] == 0 ? 0 : (double) balance[2]/balance[0]).append(',')
+			.append(balance[3]).append(',').append(balance[0] == 0 ? 0 : (double) balance[4]/balance[0]).append(',')
+			.append(this.top.getMessageStats().getMaintenanceMessages()).append(',').append(this.top.getReassignments()).append('\n');
+		try {
+			this.summary_writer.write(row.toString());
+			if(this.sample_writer != null) {
+				this.sample_writer.write(sample.toString());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Returns the given percentile of a sorted array (nearest-rank method)
+	 * @param sorted the sorted values
+	 * @param p the percentile, between 0 and 100
+	 * @return the value at the given percentile, 0 if the array is empty
+	 */
+	private static int percentile(int[] sorted, double p) {
+		if(sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(p/100.0*sorted.length);
+		return sorted[Math.max(rank-1, 0)];
+	}
+	
+	/**
+	 * Flushes and closes the output files
+	 */
+	public void close() {
+		try {
+			if(this.summary_writer != null) {
+				this.summary_writer.close();
+			}
+			if(this.sample_writer != null) {
+				this.sample_writer.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		this.summary_writer = null;
+		this.sample_writer = null;
+	}
+}
@@ -0,0 +1,152 @@
+package chord;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class estimates the round trip time towards the peers of a node (Jacobson/Karels: SRTT and RTTVAR) and derives
+ * the timeout of each destination as SRTT + 4*RTTVAR, bounded by a minimum and a maximum timeout.
+ * Only the most recently used peers are kept; unknown peers get the timeout derived from all the samples of the node,
+ * or the maximum timeout if no sample has been collected yet. When disabled, the maximum timeout is always returned.
+ */
+public class RttEstimator {
+	private static final double ALPHA = 0.125;
+	private static final double BETA = 0.25;
+	private static final int K = 4;
+	
+	private boolean enabled;
+	private double min_timeout;
+	private double max_timeout;
+	private LinkedHashMap<Integer, double[]> peers;
+	private double[] node_estimate;
+	
+	/**
+	 * Public constructor
+	 * @param enabled false to always use the maximum timeout
+	 * @param capacity maximum number of peers whose estimate is kept
+	 * @param min_timeout minimum timeout (ms)
+	 * @param max_timeout maximum timeout (ms), also used for the unknown peers
+	 */
+	public RttEstimator(boolean enabled, int capacity, double min_timeout, double max_timeout) {
+		this.enabled = enabled;
+		this.min_timeout = min_timeout;
+		this.max_timeout = max_timeout;
+		this.peers = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+				return this.size() > capacity;
+			}
+		};
+		this.node_estimate = null;
+	}
+	
+	/**
+	 * Updates the estimate of the given peer with a new round trip time
+	 * @param peer the node that answered
+	 * @param rtt the measured round trip time (ms)
+	 */
+	public void sample(Node peer, double rtt) {
+		if(this.enabled) {
+			double[] estimate = this.peers.get(peer.getId());
+			if(estimate == null) {
+				this.peers.put(peer.getId(), new double[] {rtt, rtt/2});
+			} else {
+				update(estimate, rtt);
+			}
+			if(this.node_estimate == null) {
+				this.node_estimate = new double[] {rtt, rtt/2};
+			} else {
+				update(this.node_estimate, rtt);
+			}
+		}
+	}
+	
+	/**
+	 * Updates SRTT and RTTVAR with a new sample
+	 * @param estimate array containing SRTT and RTTVAR
+	 * @param rtt the measured round trip time
+	 */
+	private static void update(double[] estimate, double rtt) {
+		estimate[1] = (1-BETA)*estimate[1] + BETA*Math.abs(estimate[0]-rtt);
+		estimate[0] = (1-ALPHA)*estimate[0] + ALPHA*rtt;
+	}
+	
+	/**
+	 * Returns the time after which a request to the given peer is considered lost
+	 * @param peer the destination of the request
+	 * @return the timeout (ms)
+	 */
+	public double timeout(Node peer) {
+		if(!this.enabled) {
+			return this.max_timeout;
+		}
+		double[] estimate = this.peers.get(peer.getId());
+		if(estimate == null) {
+			estimate = this.node_estimate;
+		}
+		if(estimate == null) {
+			return this.max_timeout;
+		}
+		return Math.min(Math.max(estimate[0] + K*estimate[1], this.min_timeout), this.max_timeout);
+	}
+	
+	/**
+	 * Returns if an answer with the given round trip time arrives after the timeout of the request, in which case the request
+	 * is handled as lost and the round trip time is not sampled (Karn's rule); with fixed timeouts the answers of the live peers are always waited for
+	 * @param peer the destination of the request
+	 * @param rtt the round trip time of the answer (ms)
+	 * @return true if the answer is late, false otherwise
+	 */
+	public boolean isLate(Node peer, double rtt) {
+		return this.enabled && rtt > this.timeout(peer);
+	}
+	
+	/**
+	 * Writes the estimates in binary format, from the least to the most recently used peer
+	 * @param out the output stream
+	 * @throws IOException if the estimates cannot be written
+	 */
+	public void writeState(DataOutputStream out) throws IOException {
+		out.writeBoolean(this.node_estimate != null);
+		if(this.node_estimate != null) {
+			out.writeDouble(this.node_estimate[0]);
+			out.writeDouble(this.node_estimate[1]);
+		}
+		out.writeInt(this.peers.size());
+		for(Map.Entry<Integer, double[]> entry: this.peers.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeDouble(entry.getValue()[0]);
+			out.writeDouble(entry.getValue()[1]);
+		}
+	}
+	
+	/**
+	 * Restores the estimates written by writeState
+	 * @param in the input stream
+	 * @throws IOException if the estimates cannot be read
+	 */
+	public void readState(DataInputStream in) throws IOException {
+		this.clear();
+		if(in.readBoolean()) {
+			this.node_estimate = new double[] {in.readDouble(), in.readDouble()};
+		}
+		int count = in.readInt();
+		for(int i=0; i < count; i++) {
+			int peer = in.readInt();
+			this.peers.put(peer, new double[] {in.readDouble(), in.readDouble()});
+		}
+	}
+	
+	/**
+	 * Removes all the estimates
+	 */
+	public void clear() {
+		this.peers.clear();
+		this.node_estimate = null;
+	}
+}
@@ -0,0 +1,252 @@
+package chord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.schedule.ISchedule;
+import repast.simphony.engine.schedule.ScheduleParameters;
+
+/**
+ * This class publishes live gauges and counters of the running simulation as a JMX MBean (chord:type=Simulation)
+ * and, if a port is given, as plain text on http://localhost:port/metrics; a POST to /abort ends the run.
+ * The values are sampled by the simulation thread at the end of every tick, so that readers never touch the simulation state;
+ * an abort request only sets a flag, and the run is ended by the simulation thread at the next sampling.
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+	private static final String OBJECT_NAME = "chord:type=Simulation";
+	private static final long RATE_INTERVAL_NS = 1000000000L;
+	
+	private TopologyBuilder top;
+	private ObjectName name;
+	private HttpServer server;
+	
+	private volatile double tick;
+	private volatile double ticks_per_second;
+	private volatile double messages_per_second;
+	private volatile int live_nodes;
+	private volatile int active_nodes;
+	private volatile long lookups_issued;
+	private volatile long lookups_completed;
+	private volatile long lookups_correct;
+	private volatile long timeouts;
+	private volatile int forced_to_leave;
+	private volatile boolean abort_requested;
+	
+	private long last_rate_time;
+	private double last_rate_tick;
+	private long last_rate_messages;
+	
+	/**
+	 * Public constructor: registers the MBean, starts the HTTP endpoint and schedules the sampling at the end of every tick
+	 * @param top reference to the TopologyBuilder
+	 * @param port port of the HTTP endpoint, 0 to disable it
+	 */
+	public SimulationMetrics(TopologyBuilder top, int port) {
+		this.top = top;
+		this.last_rate_time = System.nanoTime();
+		this.last_rate_tick = 0;
+		this.last_rate_messages = 0;
+		this.abort_requested = false;
+		
+		try {
+			MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+			this.name = new ObjectName(OBJECT_NAME);
+			if(mbs.isRegistered(this.name)) {
+				mbs.unregisterMBean(this.name);
+			}
+			mbs.registerMBean(this, this.name);
+		} catch (Exception e) {
+			e.printStackTrace();
+			this.name = null;
+		}
+		
+		if(port > 0) {
+			try {
+				this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+				this.server.createContext("/metrics", exchange -> this.reply(exchange, this.toText()));
+				this.server.createContext("/abort", exchange -> {
+					if(!exchange.getRequestMethod().equals("POST")) {
+						exchange.getResponseHeaders().set("Allow", "POST");
+						exchange.sendResponseHeaders(405, -1);
+						exchange.close();
+						return;
+					}
+					this.abort();
+					this.reply(exchange, "abort requested\n");
+				});
+				this.server.start();
+				System.out.println("Live metrics on http://localhost:"+port+"/metrics");
+			} catch (IOException e) {
+				e.printStackTrace();
+				this.server = null;
+			}
+		}
+		
+		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+		ScheduleParameters scheduleParams = ScheduleParameters.createRepeating(1, 1, ScheduleParameters.LAST_PRIORITY);
+		schedule.schedule(scheduleParams, this, "sample");
+		ScheduleParameters scheduleParamsEnd = ScheduleParameters.createAtEnd(ScheduleParameters.LAST_PRIORITY);
+		schedule.schedule(scheduleParamsEnd, this, "close");
+	}
+	
+	/**
+	 * Samples the metrics from the simulation state; the rates are updated about once per second.
+	 * Ends the run if an abort has been requested
+	 */
+	public void sample() {
+		this.tick = RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+		if(this.abort_requested) {
+			System.out.println("Run aborted at tick "+this.tick);
+			RunEnvironment.getInstance().endRun();
+			this.abort_requested = false;
+			return;
+		}
+		LookupStats stats = this.top.getLookupStats();
+		this.lookups_issued = stats.getIssued();
+		this.lookups_completed = stats.getCompleted("lookup");
+		this.lookups_correct = stats.getCorrect("lookup");
+		long timeouts = 0;
+		for(String type: LookupStats.TYPES) {
+			timeouts += stats.getTimeouts(type);
+		}
+		this.timeouts = timeouts;
+		this.forced_to_leave = this.top.getForcedToLeave();
+		
+		long now = System.nanoTime();
+		if(now - this.last_rate_time >= RATE_INTERVAL_NS) {
+			double seconds = (now - this.last_rate_time)/1e9;
+			long messages = this.top.getMessageStats().getTotalMessages();
+			this.ticks_per_second = (this.tick - this.last_rate_tick)/seconds;
+			this.messages_per_second = (messages - this.last_rate_messages)/seconds;
+			this.live_nodes = this.top.getLiveNodesNumber();
+			this.active_nodes = this.top.getActiveNodesNumber();
+			this.last_rate_time = now;
+			this.last_rate_tick = this.tick;
+			this.last_rate_messages = messages;
+		}
+	}
+	
+	/**
+	 * Stops the HTTP endpoint and unregisters the MBean
+	 */
+	public void close() {
+		if(this.server != null) {
+			this.server.stop(0);
+			this.server = null;
+		}
+		if(this.name != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+			} catch (Exception e) {
+			}
+			this.name = null;
+		}
+	}
+	
+	/**
+	 * Sends a plain text response
+	 * @param exchange the HTTP exchange
+	 * @param body the body of the response
+	 * @throws IOException if the response cannot be sent
+	 */
+	private void reply(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Returns the metrics as "name value" lines
+	 * @return the metrics in plain text
+	 */
+	public String toText() {
+		return "tick " + this.getTick() + "\n"
+				+ "ticks_per_second " + this.getTicksPerSecond() + "\n"
+				+ "messages_per_second " + this.getMessagesPerSecond() + "\n"
+				+ "live_nodes " + this.getLiveNodes() + "\n"
+				+ "active_nodes " + this.getActiveNodes() + "\n"
+				+ "lookups_issued " + this.getLookupsIssued() + "\n"
+				+ "lookups_completed " + this.getLookupsCompleted() + "\n"
+				+ "lookups_correct " + this.getLookupsCorrect() + "\n"
+				+ "timeouts " + this.getTimeouts() + "\n"
+				+ "forced_to_leave " + this.getForcedToLeave() + "\n"
+				+ "heap_used " + this.getHeapUsed() + "\n";
+	}
+	
+	@Override
+	public double getTick() {
+		return this.tick;
+	}
+	
+	@Override
+	public double getTicksPerSecond() {
+		return this.ticks_per_second;
+	}
+	
+	@Override
+	public double getMessagesPerSecond() {
+		return this.messages_per_second;
+	}
+	
+	@Override
+	public int getLiveNodes() {
+		return this.live_nodes;
+	}
+	
+	@Override
+	public int getActiveNodes() {
+		return this.active_nodes;
+	}
+	
+	@Override
+	public long getLookupsIssued() {
+		return this.lookups_issued;
+	}
+	
+	@Override
+	public long getLookupsCompleted() {
+		return this.lookups_completed;
+	}
+	
+	@Override
+	public long getLookupsCorrect() {
+		return this.lookups_correct;
+	}
+	
+	@Override
+	public long getTimeouts() {
+		return this.timeouts;
+	}
+	
+	@Override
+	public int getForcedToLeave() {
+		return this.forced_to_leave;
+	}
+	
+	@Override
+	public long getHeapUsed() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+	
+	@Override
+	public void abort() {
+		this.abort_requested = true;
+	}
+}
@@ -0,0 +1,78 @@
+package chord;
+
+/**
+ * Management interface of the live simulation metrics, exposed through JMX
+ */
+public interface SimulationMetricsMBean {
+	
+	/**
+	 * Returns the current simulation tick
+	 * @return the current simulation tick
+	 */
+	public double getTick();
+	
+	/**
+	 * Returns the number of simulated ticks per second of wall-clock time
+	 * @return the number of ticks per second
+	 */
+	public double getTicksPerSecond();
+	
+	/**
+	 * Returns the number of simulated messages per second of wall-clock time
+	 * @return the number of messages per second
+	 */
+	public double getMessagesPerSecond();
+	
+	/**
+	 * Returns the number of nodes in the ring that are initialized and not crashed
+	 * @return the number of live nodes
+	 */
+	public int getLiveNodes();
+	
+	/**
+	 * Returns the number of nodes in the ring
+	 * @return the number of active nodes
+	 */
+	public int getActiveNodes();
+	
+	/**
+	 * Returns the number of lookups issued
+	 * @return the number of lookups issued
+	 */
+	public long getLookupsIssued();
+	
+	/**
+	 * Returns the number of lookups completed
+	 * @return the number of lookups completed
+	 */
+	public long getLookupsCompleted();
+	
+	/**
+	 * Returns the number of lookups that found the responsible node
+	 * @return the number of correct lookups
+	 */
+	public long getLookupsCorrect();
+	
+	/**
+	 * Returns the number of timeouts encountered by all the completed find_successor operations
+	 * @return the number of timeouts
+	 */
+	public long getTimeouts();
+	
+	/**
+	 * Returns the number of nodes forced to leave the ring
+	 * @return the number of nodes forced to leave
+	 */
+	public int getForcedToLeave();
+	
+	/**
+	 * Returns the heap currently used by the JVM in bytes
+	 * @return the used heap in bytes
+	 */
+	public long getHeapUsed();
+	
+	/**
+	 * Ends the current run at the next tick
+	 */
+	public void abort();
+}
@@ -0,0 +1,294 @@
+package chord;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * This class defines an immutable successors list, which can be handed to other nodes (stabilization, state transfer,
+ * range scans) without copying it. Dropping the first entries or truncating the list shares the entries of the original one,
+ * while the other edits are collected by a Builder, which allocates a single array for a whole sequence of changes
+ */
+public class SuccessorList extends AbstractList<Node> {
+	private static final SuccessorList EMPTY = new SuccessorList(new Node[0], 0, 0);
+	
+	private final Node[] entries;
+	private final int offset;
+	private final int length;
+	
+	/**
+	 * Private constructor, the entries in [offset, offset+length) must never be modified afterwards
+	 * @param entries the shared entries
+	 * @param offset index of the first entry of the list
+	 * @param length number of entries of the list
+	 */
+	private SuccessorList(Node[] entries, int offset, int length) {
+		this.entries = entries;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	/**
+	 * Returns the empty successors list
+	 * @return the empty successors list
+	 */
+	public static SuccessorList empty() {
+		return EMPTY;
+	}
+	
+	/**
+	 * Returns a successors list containing the given nodes
+	 * @param nodes the nodes, in order
+	 * @return the successors list
+	 */
+	public static SuccessorList of(Collection<Node> nodes) {
+		if(nodes instanceof SuccessorList) {
+			return (SuccessorList) nodes;
+		}
+		return nodes.isEmpty() ? EMPTY : new SuccessorList(nodes.toArray(new Node[0]), 0, nodes.size());
+	}
+	
+	@Override
+	public Node get(int index) {
+		if(index < 0 || index >= this.length) {
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+this.length);
+		}
+		return this.entries[this.offset+index];
+	}
+	
+	@Override
+	public int size() {
+		return this.length;
+	}
+	
+	/**
+	 * Returns the list without its first entries, sharing the remaining ones
+	 * @param count number of entries to drop
+	 * @return the successors list without the first count entries
+	 */
+	public SuccessorList dropFirst(int count) {
+		if(count <= 0) {
+			return this;
+		}
+		return count >= this.length ? EMPTY : new SuccessorList(this.entries, this.offset+count, this.length-count);
+	}
+	
+	/**
+	 * Returns the first entries of the list, sharing them
+	 * @param max_size maximum number of entries to keep
+	 * @return the successors list with at most max_size entries
+	 */
+	public SuccessorList truncate(int max_size) {
+		if(max_size >= this.length) {
+			return this;
+		}
+		return max_size <= 0 ? EMPTY : new SuccessorList(this.entries, this.offset, max_size);
+	}
+	
+	/**
+	 * Returns the list without the given node
+	 * @param node the node to remove
+	 * @return the successors list without the node (the list itself if the node is not present)
+	 */
+	public SuccessorList without(Node node) {
+		int index = this.indexOf(node);
+		if(index == -1) {
+			return this;
+		} else if(index == 0) {
+			return this.dropFirst(1);
+		} else if(index == this.length-1) {
+			return this.truncate(this.length-1);
+		}
+		return this.toBuilder(0).remove(index).build();
+	}
+	
+	/**
+	 * Returns a builder initialized with the entries of the list
+	 * @param extra additional capacity expected to be used by the edits
+	 * @return the builder
+	 */
+	public Builder toBuilder(int extra) {
+		return new Builder(this, extra);
+	}
+	
+	/**
+	 * This class collects the edits of a successors list in a single array, which is then frozen by build()
+	 */
+	public static class Builder {
+		private Node[] entries;
+		private int length;
+		private boolean built;
+		
+		/**
+		 * Public constructor, starting from an empty list
+		 * @param capacity expected number of entries
+		 */
+		public Builder(int capacity) {
+			this.entries = new Node[Math.max(capacity, 1)];
+			this.length = 0;
+			this.built = false;
+		}
+		
+		/**
+		 * Private constructor, starting from the entries of the given list
+		 * @param base the list to edit
+		 * @param extra additional capacity expected to be used by the edits
+		 */
+		private Builder(SuccessorList base, int extra) {
+			this.entries = new Node[Math.max(base.length+extra, 1)];
+			System.arraycopy(base.entries, base.offset, this.entries, 0, base.length);
+			this.length = base.length;
+			this.built = false;
+		}
+		
+		/**
+		 * Makes room for one more entry, failing if the list has already been built
+		 */
+		private void ensureCapacity() {
+			if(this.built) {
+				throw new IllegalStateException("Error, the successors list has already been built");
+			}
+			if(this.length == this.entries.length) {
+				this.entries = Arrays.copyOf(this.entries, 2*this.entries.length);
+			}
+		}
+		
+		/**
+		 * Returns the entry at the given position
+		 * @param index position of the entry
+		 * @return the entry
+		 */
+		public Node get(int index) {
+			if(index < 0 || index >= this.length) {
+				throw new IndexOutOfBoundsException("Index: "+index+", Size: "+this.length);
+			}
+			return this.entries[index];
+		}
+		
+		/**
+		 * Returns the number of entries
+		 * @return the number of entries
+		 */
+		public int size() {
+			return this.length;
+		}
+		
+		/**
+		 * Returns if there are no entries
+		 * @return true if there are no entries, false otherwise
+		 */
+		public boolean isEmpty() {
+			return this.length == 0;
+		}
+		
+		/**
+		 * Returns the position of the given node
+		 * @param node the node of interest
+		 * @return the position of the node, -1 if it is not present
+		 */
+		public int indexOf(Node node) {
+			for(int i=0; i < this.length; i++) {
+				if(this.entries[i].equals(node)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		/**
+		 * Returns if the given node is present
+		 * @param node the node of interest
+		 * @return true if the node is present, false otherwise
+		 */
+		public boolean contains(Node node) {
+			return this.indexOf(node) != -1;
+		}
+		
+		/**
+		 * Appends a node
+		 * @param node the node to append
+		 * @return the builder itself
+		 */
+		public Builder add(Node node) {
+			return this.add(this.length, node);
+		}
+		
+		/**
+		 * Inserts a node at the given position, shifting the following entries
+		 * @param index position of the new entry
+		 * @param node the node to insert
+		 * @return the builder itself
+		 */
+		public Builder add(int index, Node node) {
+			if(index < 0 || index > this.length) {
+				throw new IndexOutOfBoundsException("Index: "+index+", Size: "+this.length);
+			}
+			this.ensureCapacity();
+			System.arraycopy(this.entries, index, this.entries, index+1, this.length-index);
+			this.entries[index] = node;
+			this.length++;
+			return this;
+		}
+		
+		/**
+		 * Replaces the entry at the given position
+		 * @param index position of the entry
+		 * @param node the new node
+		 * @return the builder itself
+		 */
+		public Builder set(int index, Node node) {
+			this.get(index);
+			if(this.built) {
+				throw new IllegalStateException("Error, the successors list has already been built");
+			}
+			this.entries[index] = node;
+			return this;
+		}
+		
+		/**
+		 * Removes the entry at the given position, shifting the following entries
+		 * @param index position of the entry
+		 * @return the builder itself
+		 */
+		public Builder remove(int index) {
+			this.get(index);
+			if(this.built) {
+				throw new IllegalStateException("Error, the successors list has already been built");
+			}
+			System.arraycopy(this.entries, index+1, this.entries, index, this.length-index-1);
+			this.entries[--this.length] = null;
+			return this;
+		}
+		
+		/**
+		 * Removes the given node, if present
+		 * @param node the node to remove
+		 * @return the builder itself
+		 */
+		public Builder remove(Node node) {
+			int index = this.indexOf(node);
+			return index == -1 ? this : this.remove(index);
+		}
+		
+		/**
+		 * Removes the last entries exceeding the given size
+		 * @param max_size maximum number of entries to keep
+		 * @return the builder itself
+		 */
+		public Builder truncate(int max_size) {
+			while(this.length > Math.max(max_size, 0)) {
+				this.remove(this.length-1);
+			}
+			return this;
+		}
+		
+		/**
+		 * Freezes the entries into an immutable successors list, no further edits are allowed
+		 * @return the successors list
+		 */
+		public SuccessorList build() {
+			this.built = true;
+			return this.length == 0 ? EMPTY : new SuccessorList(this.entries, 0, this.length);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package chord;
+
+import java.util.List;
+
+/**
+ * This class encodes the successors list sent in a stabilization response w.r.t. the version already known by the requester:
+ * "unchanged" if the requester has the current version, otherwise the new list expressed as head + a run of the known list + tail,
+ * where the run is the longest sequence of consecutive entries shared by the two lists (a shift, an insertion or a removal
+ * keep most of the list in a single run). The whole list is sent if the requester knows no version or no entry is shared.
+ */
+public class SuccessorListDelta {
+	private int base_version;
+	private int version;
+	private boolean unchanged;
+	private boolean versioned;
+	private List<Node> head;
+	private int keep_from;
+	private int keep_len;
+	private List<Node> tail;
+	
+	/**
+	 * Private constructor, use encode or full
+	 */
+	private SuccessorListDelta(int base_version, int version, boolean unchanged, boolean versioned, List<Node> head, int keep_from, int keep_len, List<Node> tail) {
+		this.base_version = base_version;
+		this.version = version;
+		this.unchanged = unchanged;
+		this.versioned = versioned;
+		this.head = head;
+		this.keep_from = keep_from;
+		this.keep_len = keep_len;
+		this.tail = tail;
+	}
+	
+	/**
+	 * Returns the whole list, without version information in the accounted size (non versioned exchange)
+	 * @param version version of the list
+	 * @param current the list
+	 * @return the encoded list
+	 */
+	public static SuccessorListDelta full(int version, List<Node> current) {
+		return new SuccessorListDelta(-1, version, false, false, current, 0, 0, SuccessorList.empty());
+	}
+	
+	/**
+	 * Encodes the current list w.r.t. the version known by the requester
+	 * @param base_version version known by the requester, -1 if none
+	 * @param base the list of the known version, null if it is no longer available
+	 * @param version current version
+	 * @param current current list
+	 * @return the encoded list
+	 */
+	public static SuccessorListDelta encode(int base_version, List<Node> base, int version, List<Node> current) {
+		if(base_version == version) {
+			return new SuccessorListDelta(base_version, version, true, true, SuccessorList.empty(), 0, 0, SuccessorList.empty());
+		}
+		if(base_version == -1 || base == null) {
+			return new SuccessorListDelta(-1, version, false, true, current, 0, 0, SuccessorList.empty());
+		}
+		
+		//longest common run of consecutive entries (dynamic programming on the suffixes)
+		int best_len = 0;
+		int best_base = 0;
+		int best_current = 0;
+		int[] prev = new int[current.size()+1];
+		int[] row = new int[current.size()+1];
+		for(int i=1; i <= base.size(); i++) {
+			for(int j=1; j <= current.size(); j++) {
+				row[j] = base.get(i-1).equals(current.get(j-1)) ? prev[j-1]+1 : 0;
+				if(row[j] > best_len) {
+					best_len = row[j];
+					best_base = i-row[j];
+					best_current = j-row[j];
+				}
+			}
+			int[] swap = prev;
+			prev = row;
+			row = swap;
+		}
+		if(best_len == 0) {
+			return new SuccessorListDelta(-1, version, false, true, current, 0, 0, SuccessorList.empty());
+		}
+		return new SuccessorListDelta(base_version, version, false, true, current.subList(0, best_current), best_base, best_len,
+				current.subList(best_current+best_len, current.size()));
+	}
+	
+	/**
+	 * Rebuilds the list of the responder
+	 * @param base the list of the version known by the requester (ignored if the whole list has been sent)
+	 * @return the list of the responder (base itself if unchanged), null if base is needed but not available
+	 */
+	public SuccessorList apply(SuccessorList base) {
+		if(this.unchanged) {
+			return base;
+		}
+		if(this.base_version == -1) { //the whole list, shared with the responder
+			return SuccessorList.of(this.head);
+		}
+		if(base == null || base.size() < this.keep_from+this.keep_len) {
+			return null;
+		}
+		if(this.head.isEmpty() && this.tail.isEmpty()) { //shared with the known version
+			return base.dropFirst(this.keep_from).truncate(this.keep_len);
+		}
+		SuccessorList.Builder list = new SuccessorList.Builder(this.head.size()+this.keep_len+this.tail.size());
+		for(Node node: this.head) {
+			list.add(node);
+		}
+		for(int i=this.keep_from; i < this.keep_from+this.keep_len; i++) {
+			list.add(base.get(i));
+		}
+		for(Node node: this.tail) {
+			list.add(node);
+		}
+		return list.build();
+	}
+	
+	/**
+	 * Returns the estimated size of the response carrying the encoded list
+	 * @return estimated size in bytes
+	 */
+	public int getBytes() {
+		if(!this.versioned) {
+			return MessageStats.idsMessageBytes(1+this.head.size());
+		}
+		if(this.unchanged) {
+			return MessageStats.idsMessageBytes(2);
+		}
+		if(this.base_version == -1) {
+			return MessageStats.idsMessageBytes(2+this.head.size());
+		}
+		return MessageStats.idsMessageBytes(4+this.head.size()+this.tail.size());
+	}
+	
+	/**
+	 * Returns the version the delta applies to
+	 * @return the base version, -1 if the whole list has been sent
+	 */
+	public int getBaseVersion() {
+		return this.base_version;
+	}
+	
+	/**
+	 * Returns the version of the encoded list
+	 * @return the version of the encoded list
+	 */
+	public int getVersion() {
+		return this.version;
+	}
+	
+	/**
+	 * Returns if the list is the one already known by the requester
+	 * @return true if the list is unchanged, false otherwise
+	 */
+	public boolean isUnchanged() {
+		return this.unchanged;
+	}
+}
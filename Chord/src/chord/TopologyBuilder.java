@@ -1,16 +1,30 @@
 package chord;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Random;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.commons.lang3.RandomStringUtils;
@@ -35,20 +49,47 @@ import repast.simphony.engine.schedule.ScheduleParameters;
 public class TopologyBuilder implements ContextBuilder<Object> {
 
 	private final double end = 5000;
+	private static final int CHECKPOINT_MAGIC = 0x43484b33;
 	private Random rnd;
-	private ArrayList<Node> all_nodes;
+	private HashMap<Integer, Node> all_nodes;
+	private int num_ids;
+	private LookupPathView path_view;
+	private int hash_size;
+	private int center;
+	private int radius;
+	private int successors_size;
+	private boolean bulk_join;
+	private int finger_base;
+	private NodeConfig node_config;
 	private TreeSet<Node> active_nodes;
 	private int min_number_joins;
 	private int join_amplitude;
 	private int min_number_leaving;
 	private int leaving_amplitude;
 	private HashSet<Integer> keys;
-	private ArrayList<Lookup> lookup_table;
+	private LinkedHashMap<Integer, Lookup> lookup_table;
+	private LookupStats lookup_stats;
+	private boolean store_lookups;
+	private MessageStats message_stats;
+	private RingMetrics ring_metrics;
 	private double lookup_interval;
 	private boolean one_key_lookup;
 	private int number_lookup;
+	private int lookup_batch_size;
+	private boolean batched_lookups;
+	private int kv_requests;
+	private double kv_get_ratio;
+	private double kv_delete_ratio;
+	private int range_query_width;
+	private int range_fanout;
 	private int forced_to_leave;
 	private int additional_joins;
+	private int virtual_nodes;
+	private Host filling_host;
+	private int next_host;
+	private int balance_probes;
+	private double balance_epsilon;
+	private int reassignments;
 	
 	/**
 	 * Repast constructor: loads the simulation parameters; initializes the Chord ring and the nodes; generates the data and assigns them to the nodes; schedules leavings, insertions and lookups
@@ -62,23 +103,56 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		Parameters params = RunEnvironment.getInstance().getParameters();
 		
 		int seed = params.getInteger("randomSeed");
-		double crash_pr = params.getDouble("crash_pr");
-		double crash_scheduling_interval = params.getDouble("crash_scheduling_interval");
-		double recovery_interval = params.getDouble("recovery_interval");
-		int succesors_size = params.getInteger("successors_size");
+		int hash_size = params.getInteger("m");
+		this.successors_size = params.getInteger("successors_size");
 		double stab_offset = params.getDouble("stab_offset");
 		int stab_amplitude = params.getInteger("stab_amplitude");
+		this.bulk_join = params.getBoolean("bulk_join");
+		this.finger_base = params.getInteger("finger_base");
+		this.node_config = new NodeConfig.Builder()
+				.setHashSize(hash_size)
+				.setCrashPr(params.getDouble("crash_pr"))
+				.setCrashSchedulingInterval(params.getDouble("crash_scheduling_interval"))
+				.setRecoveryInterval(params.getDouble("recovery_interval"))
+				.setSuccessorsSize(this.successors_size)
+				.setStabOffset(stab_offset)
+				.setStabAmplitude(stab_amplitude)
+				.setMultiFingerRepair(params.getBoolean("multi_finger_repair"))
+				.setFastJoin(params.getBoolean("fast_join"))
+				.setFingerBase(this.finger_base)
+				.setLookupParallelism(params.getInteger("lookup_parallelism"))
+				.setMeanPacketDelay(params.getDouble("mean_packet_delay"))
+				.setMaximumAllowedDelay(params.getDouble("maximum_allowed_delay"))
+				.setAdaptiveTimeouts(params.getBoolean("adaptive_timeouts"))
+				.setMinTimeout(params.getDouble("min_timeout"))
+				.setFailureDetector(params.getString("failure_detector"))
+				.setDetectorInterval(params.getDouble("detector_interval"))
+				.setHeartbeatTimeout(params.getDouble("heartbeat_timeout"))
+				.setPhiThreshold(params.getDouble("phi_threshold"))
+				.setDeltaSuccessors(params.getBoolean("delta_successors"))
+				.build();
 		
+		this.hash_size = hash_size;
+		this.num_ids = Double.valueOf(Math.pow(2, hash_size)).intValue();
+		int space_size = this.num_ids*4;
+		this.center = space_size/2;
+		this.radius = (this.center*3)/4;
 		
-		int hash_size = params.getInteger("m");
-		int num_nodes = Double.valueOf(Math.pow(2, hash_size)).intValue();
-		int space_size = num_nodes*4;
-		int center = space_size/2;
-		int radius = (center*3)/4;
+		this.virtual_nodes = params.getInteger("virtual_nodes");
+		if (this.virtual_nodes < 1) {
+			throw new RuntimeException("Error, each physical node must have at least one virtual node");
+		}
+		this.filling_host = null;
+		this.next_host = 0;
 		
-		int init_num_nodes = params.getInteger("init_num_nodes");		
+		double balance_interval = params.getDouble("balance_interval");
+		this.balance_probes = params.getInteger("balance_probes");
+		this.balance_epsilon = params.getDouble("balance_epsilon");
+		this.reassignments = 0;
+		int init_num_nodes = params.getInteger("init_num_nodes")*this.virtual_nodes;
 		boolean one_at_time_init = params.getBoolean("one_at_time_init");
 		double insertion_delay = params.getDouble("insertion_delay")  > stab_offset+stab_amplitude ?  params.getDouble("insertion_delay") : stab_offset+stab_amplitude+1;
+		double init_duration = this.bulk_join ? insertion_delay : init_num_nodes*insertion_delay;
 		
 		int data_size = params.getInteger("data_size");
 		int key_size = params.getInteger("key_size") > data_size ?  data_size : params.getInteger("key_size");
@@ -95,6 +169,17 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		this.lookup_interval = params.getDouble("lookup_interval");
 		this.number_lookup = params.getInteger("number_lookup");
 		this.one_key_lookup = params.getBoolean("one_key_lookup");
+		this.lookup_batch_size = params.getInteger("lookup_batch_size");
+		this.batched_lookups = params.getBoolean("batched_lookups");
+		
+		double kv_interval = params.getDouble("kv_interval");
+		this.kv_requests = params.getInteger("kv_requests");
+		this.kv_get_ratio = params.getDouble("kv_get_ratio");
+		this.kv_delete_ratio = params.getDouble("kv_delete_ratio");
+		
+		double range_query_interval = params.getDouble("range_query_interval");
+		this.range_query_width = params.getInteger("range_query_width");
+		this.range_fanout = params.getInteger("range_fanout");
 		
 		context.setId("Chord");
 		
@@ -104,46 +189,40 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		
 		NetworkBuilder<Object> netBuilder = new NetworkBuilder<Object>("chord_network", context, true);
 		Network<Object> network = netBuilder.buildNetwork();
+		this.path_view = new LookupPathView(network, !RunEnvironment.getInstance().isBatch());
 
 		Ring ring = new Ring(Float.valueOf(String.valueOf(radius)));
 		context.add(ring);
-		space.moveTo(ring, center, center);
+		space.moveTo(ring, this.center, this.center);
 		
 		this.rnd = new Random(seed);
-		this.lookup_table = new ArrayList<>();
+		this.lookup_table = new LinkedHashMap<>();
+		this.lookup_stats = new LookupStats(params.getDouble("stats_window"));
+		this.store_lookups = params.getBoolean("store_lookups");
+		this.message_stats = new MessageStats();
 		
-		this.all_nodes = new ArrayList<>();
+		this.all_nodes = new HashMap<>();
 		this.forced_to_leave = 0;
 		this.additional_joins = 0;
 		
-		for (int i = 0; i < num_nodes; i++) {
-			Node node = new Node(
-					this,
-					network, 
-					this.rnd, 
-					hash_size, 
-					i,
-					center+radius*Math.sin(Math.toRadians((360.0/num_nodes)*i)), 
-					center+radius*Math.cos(Math.toRadians((360.0/num_nodes)*i)),
-					crash_pr,
-					crash_scheduling_interval,
-					recovery_interval,
-					succesors_size,
-					stab_offset,
-					stab_amplitude,
-					lookup_table
-			);
-			this.all_nodes.add(node);
-		}
 		this.keys = new HashSet<>();
 		
 		active_nodes = new TreeSet<>();
 		
-		if (one_at_time_init) {
+		String resume_file = params.getString("resume_file");
+		boolean resume = resume_file != null && !resume_file.isEmpty();
+		
+		if (resume) {
+			this.loadCheckpoint(resume_file, context, space);
+		} else if (one_at_time_init) {
 			if (this.active_nodes.size() != init_num_nodes) {	
 				ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 				ScheduleParameters scheduleParams = ScheduleParameters.createOneTime(schedule.getTickCount()+1);
-				schedule.schedule(scheduleParams, this, "one_at_time_init", init_num_nodes, insertion_delay, context, space);
+				if(this.bulk_join) {
+					schedule.schedule(scheduleParams, this, "bulk_init", init_num_nodes, context, space);
+				} else {
+					schedule.schedule(scheduleParams, this, "one_at_time_init", init_num_nodes, insertion_delay, context, space);
+				}
 			}
 		}else {
 			preloaded_configuration(init_num_nodes, context, space);
@@ -152,9 +231,11 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		
 		ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 		
-		double data_gen = (one_at_time_init ? init_num_nodes*insertion_delay+(stab_offset+stab_amplitude) : (stab_offset+stab_amplitude));
-		ScheduleParameters scheduleParamsDataGen = ScheduleParameters.createOneTime(data_gen);
-		schedule.schedule(scheduleParamsDataGen, this, "data_generation", hash_size, key_size, data_size, total_number_data);
+		double data_gen = resume ? 1 : (one_at_time_init ? init_duration+(stab_offset+stab_amplitude) : (stab_offset+stab_amplitude));
+		if (!resume) {
+			ScheduleParameters scheduleParamsDataGen = ScheduleParameters.createOneTime(data_gen);
+			schedule.schedule(scheduleParamsDataGen, this, "data_generation", hash_size, key_size, data_size, total_number_data);
+		}
 		
 		double first_schedule = data_gen+this.lookup_interval;
 		
@@ -165,8 +246,16 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		}else {
 			schedule.schedule(scheduleParamsLookup, this, "lookupMultipleKeys");
 		}
+		if (kv_interval > 0) {
+			ScheduleParameters scheduleParamsKV = ScheduleParameters.createRepeating(data_gen+kv_interval, kv_interval);
+			schedule.schedule(scheduleParamsKV, this, "kvWorkload", hash_size, key_size, data_size);
+		}
+		if (range_query_interval > 0) {
+			ScheduleParameters scheduleParamsRange = ScheduleParameters.createRepeating(data_gen+range_query_interval, range_query_interval);
+			schedule.schedule(scheduleParamsRange, this, "rangeQuery");
+		}
 		// the first batch of join has to be scheduled after the last node insert makes a stabilization and after the data generation, similar the first leave 
-		double first_leave = (one_at_time_init ? init_num_nodes*insertion_delay+(stab_offset+stab_amplitude)+1 : (stab_offset+stab_amplitude)) + leave_interval+1;
+		double first_leave = (resume ? data_gen : (one_at_time_init ? init_duration+(stab_offset+stab_amplitude)+1 : (stab_offset+stab_amplitude))) + leave_interval+1;
 		System.out.println("first leave:  "+first_leave);
 		System.out.println("first join:  ~"+(first_leave+this.min_number_leaving+join_interval));
 
@@ -174,15 +263,111 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 
 		schedule.schedule(scheduleParamsleave, this, "leaving_nodes", context, space, join_interval);
 		
+		if (balance_interval > 0) {
+			ScheduleParameters scheduleParamsBalance = ScheduleParameters.createRepeating(first_leave+balance_interval, balance_interval);
+			schedule.schedule(scheduleParamsBalance, this, "balance_items", context, space);
+		}
+		
+		double checkpoint_tick = params.getDouble("checkpoint_tick");
+		if (checkpoint_tick > 0) {
+			ScheduleParameters scheduleParamsCheckpoint = ScheduleParameters.createOneTime(checkpoint_tick);
+			schedule.schedule(scheduleParamsCheckpoint, this, "saveCheckpoint", params.getString("checkpoint_file"));
+		}
+		
+		double ring_metrics_interval = params.getDouble("ring_metrics_interval");
+		if (ring_metrics_interval > 0) {
+			String timeLog = new SimpleDateFormat("yyyyMMdd_HHmmss").format(Calendar.getInstance().getTime());
+			this.ring_metrics = new RingMetrics(this, this.successors_size, timeLog, params.getInteger("ring_metrics_sample"));
+			ScheduleParameters scheduleParamsMetrics = ScheduleParameters.createRepeating(1, ring_metrics_interval, ScheduleParameters.LAST_PRIORITY);
+			schedule.schedule(scheduleParamsMetrics, this.ring_metrics, "collect", this.active_nodes);
+			ScheduleParameters scheduleParamsMetricsEnd = ScheduleParameters.createAtEnd(ScheduleParameters.LAST_PRIORITY);
+			schedule.schedule(scheduleParamsMetricsEnd, this.ring_metrics, "close");
+		}
+		
+		if (params.getBoolean("live_metrics")) {
+			new SimulationMetrics(this, params.getInteger("live_metrics_port"));
+		}
+		
 		ScheduleParameters scheduleParamsDebug = ScheduleParameters.createOneTime(10000);
 		schedule.schedule(scheduleParamsDebug, this, "debug");
 
 		ScheduleParameters scheduleLookup= ScheduleParameters.createOneTime(end);
 		schedule.schedule(scheduleLookup, this, "getLookupsResults");
+		schedule.schedule(scheduleLookup, this, "getMessagesResults");
+		schedule.schedule(scheduleLookup, this, "getLookupStatsResults");
 		
 		return context;
 	}
 	
+	/**
+	 * Returns the node with the given id, creating it the first time the id is activated
+	 * @param id id of the node
+	 * @return reference to the node with the given id
+	 */
+	Node getNode(int id) {
+		Node node = this.all_nodes.get(id);
+		if(node == null) {
+			node = new Node(
+					this,
+					this.path_view, 
+					this.rnd, 
+					id,
+					this.center+this.radius*Math.sin(Math.toRadians((360.0/this.num_ids)*id)), 
+					this.center+this.radius*Math.cos(Math.toRadians((360.0/this.num_ids)*id)),
+					this.lookup_table,
+					this.message_stats,
+					this.node_config
+			);
+			this.all_nodes.put(id, node);
+		}
+		return node;
+	}
+	
+	/**
+	 * Assigns a node that is becoming active to the physical node being filled, starting a new one every virtual_nodes nodes
+	 * @param node the activated node
+	 */
+	private void assignHost(Node node) {
+		if(this.filling_host == null || this.filling_host.getNodes().size() >= this.virtual_nodes) {
+			this.filling_host = new Host(this.next_host++);
+		}
+		this.filling_host.addNode(node);
+		node.setHost(this.filling_host);
+	}
+	
+	/**
+	 * Detaches a node that left the ring from its physical node
+	 * @param node the node leaving the ring
+	 */
+	private void releaseHost(Node node) {
+		if(node.getHost() != null) {
+			node.getHost().removeNode(node);
+			node.setHost(null);
+		}
+	}
+	
+	/**
+	 * Returns true if the given id is not used by an active node, false otherwise (no node is instantiated)
+	 * @param id id of interest
+	 * @return true if the id is free, false otherwise
+	 */
+	private boolean isFreeId(int id) {
+		Node node = this.all_nodes.get(id);
+		return node == null || !this.active_nodes.contains(node);
+	}
+	
+	/**
+	 * Draws a random id not used by any active node
+	 * @return a free id
+	 */
+	private int randomFreeId() {
+		int id = this.rnd.nextInt(this.num_ids);
+		while(!this.isFreeId(id)) {
+			id = this.rnd.nextInt(this.num_ids);
+		}
+		return id;
+	}
+	
 	/**
 	 * Initialization strategy in which the nodes are inserted one at a time providing them with a random node already present the chord ring
 	 * insertion_delay ticks are waited between two insertions in order to allow the new node to perform at least one stabilization
@@ -192,12 +377,10 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 	 * @param space reference to the 2D space
 	 */
 	public void one_at_time_init(int init_num_nodes, double insertion_delay, Context<Object> context, ContinuousSpace<Object> space) {	
-		Node node = this.all_nodes.get(this.rnd.nextInt(this.all_nodes.size()));
-		while(this.active_nodes.contains(node)) {
-			node = this.all_nodes.get(this.rnd.nextInt(this.all_nodes.size()));
-		}
+		Node node = this.getNode(this.randomFreeId());
 			
 		this.active_nodes.add(node);
+		this.assignHost(node);
 		context.add(node);
 		space.moveTo(node, node.getX(), node.getY());
 		if (this.active_nodes.size() == 1) {
@@ -220,6 +403,75 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		}
 	}
 	
+	/**
+	 * Initialization strategy in which all the nodes are inserted with a single bulk join (used when one_at_time_init and bulk_join are set)
+	 * @param init_num_nodes the number of nodes to initialize
+	 * @param context reference to the context
+	 * @param space reference to the 2D space
+	 */
+	public void bulk_init(int init_num_nodes, Context<Object> context, ContinuousSpace<Object> space) {
+		ArrayList<Node> new_nodes = new ArrayList<>();
+		HashSet<Integer> new_ids = new HashSet<>();
+		while(new_nodes.size() < init_num_nodes) {
+			int id = this.rnd.nextInt(this.num_ids);
+			if(this.isFreeId(id) && !new_ids.contains(id)) {
+				new_ids.add(id);
+				new_nodes.add(this.getNode(id));
+			}
+		}
+		this.bulk_insert(new_nodes, context, space);
+	}
+	
+	/**
+	 * Inserts a batch of nodes in the ring in one coordinated pass. The joining nodes and the live nodes are sorted by id:
+	 * each joining node receives its successors and its predecessor, while each live node preceded by an arc of joining nodes
+	 * hands its data over to them (bulkHandoff). If the ring is empty, the first joining node creates it.
+	 * @param new_nodes the joining nodes
+	 * @param context reference to the context
+	 * @param space reference to the 2D space
+	 */
+	private void bulk_insert(ArrayList<Node> new_nodes, Context<Object> context, ContinuousSpace<Object> space) {
+		HashSet<Node> joining = new HashSet<>(new_nodes);
+		for(Node node: new_nodes) {
+			this.active_nodes.add(node);
+			this.assignHost(node);
+			context.add(node);
+			space.moveTo(node, node.getX(), node.getY());
+		}
+		
+		ArrayList<Node> members = new ArrayList<>();
+		for(Node node: this.active_nodes) {
+			if(joining.contains(node) || (node.isSubscribed() && node.isInitialized() && !node.isCrashed())) {
+				members.add(node);
+			}
+		}
+		if(members.size() == joining.size()) {
+			Node first = members.get(0);
+			first.create();
+			joining.remove(first);
+		}
+		
+		System.out.println("\nBulk joining "+joining.size()+" nodes  "+RunEnvironment.getInstance().getCurrentSchedule().getTickCount());
+		int size = members.size();
+		for(int i=0; i < size && !joining.isEmpty(); i++) {
+			Node node = members.get(i);
+			Node prev = members.get((i-1+size) % size);
+			if(joining.contains(node)) {
+				ArrayList<Node> successors = new ArrayList<>();
+				for(int j=1; j <= this.successors_size && j < size; j++) {
+					successors.add(members.get((i+j) % size));
+				}
+				node.bulkJoin(successors, prev);
+			} else if(joining.contains(prev)) {
+				ArrayList<Node> arc = new ArrayList<>();
+				for(int j=i-1; joining.contains(members.get((j+size) % size)); j--) {
+					arc.add(0, members.get((j+size) % size));
+				}
+				node.bulkHandoff(arc);
+			}
+		}
+	}
+	
 	/**
 	 * Initialization strategy in which init_num_nodes nodes are inserted concurrently providing them with the right immediate successor
 	 * @param init_num_nodes the number of nodes to initialize
@@ -228,9 +480,11 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 	 */
 	private void preloaded_configuration(int init_num_nodes, Context<Object> context, ContinuousSpace<Object> space) {
 		while(this.active_nodes.size() < init_num_nodes) {
-			Node node = this.all_nodes.get(this.rnd.nextInt(this.all_nodes.size()));
-			if(!this.active_nodes.contains(node)) {
+			int id = this.rnd.nextInt(this.num_ids);
+			if(this.isFreeId(id)) {
+				Node node = this.getNode(id);
 				this.active_nodes.add(node);
+				this.assignHost(node);
 				context.add(node);
 				space.moveTo(node, node.getX(), node.getY());
 			}
@@ -257,7 +511,7 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 			Integer hashKey = Utils.getHash(key, m);
 			if(!this.keys.contains(hashKey)) {
 				this.keys.add(hashKey);
-				HashMap<Integer, String> dataMap = new HashMap<>();
+				TreeMap<Integer, String> dataMap = new TreeMap<>();
 				dataMap.put(hashKey, data);
 				Iterator<Node> it = this.active_nodes.iterator();
 				Boolean find = false;
@@ -276,7 +530,8 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 	}
 	
 	/**
-	 * Lookup strategy in which each node looks for a random key
+	 * Lookup strategy in which each node looks for a random key, or for lookup_batch_size distinct random keys (as separate lookups or,
+	 * if batched_lookups is true, as a single multi-key lookup, so that both modes look for the same number of keys)
 	 */
 	public void lookupMultipleKeys() {	
 		HashSet<Node> lookupingNodes = new HashSet<>();
@@ -299,11 +554,30 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 			}
 		}
 		
+		ArrayList<Integer> keyList = new ArrayList<Integer>(this.keys);
 		for(Node node: lookupingNodes) {
-			int hashKey = (new ArrayList<Integer>(this.keys)).get(this.rnd.nextInt(this.keys.size()));
-			Lookup newLookup = new Lookup(this.lookup_table.size(), hashKey, node.getId(), RunEnvironment.getInstance().getCurrentSchedule().getTickCount(), this.firstNotCrashed(hashKey), this);
-			this.lookup_table.add(newLookup);
-			node.lookup(hashKey, this.lookup_table.size()-1);			
+			if(this.lookup_batch_size > 1) {
+				int[] batchKeys = new int[Math.min(this.lookup_batch_size, keyList.size())];
+				HashSet<Integer> drawnKeys = new HashSet<>();
+				for(int i=0; i < batchKeys.length; i++) {
+					int hashKey = keyList.get(this.rnd.nextInt(keyList.size()));
+					while(drawnKeys.contains(hashKey)) {
+						hashKey = keyList.get(this.rnd.nextInt(keyList.size()));
+					}
+					drawnKeys.add(hashKey);
+					batchKeys[i] = hashKey;
+				}
+				if(this.batched_lookups) {
+					node.lookupBatch(batchKeys);
+				} else {
+					for(int hashKey: batchKeys) {
+						this.startLookup(node, hashKey);
+					}
+				}
+			} else {
+				int hashKey = keyList.get(this.rnd.nextInt(keyList.size()));
+				this.startLookup(node, hashKey);
+			}
 		}
 	}
 	
@@ -333,18 +607,120 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		}
 		
 		for(Node node: lookupingNodes) {
-			Lookup newLookup = new Lookup(this.lookup_table.size(), hashKey, node.getId(), RunEnvironment.getInstance().getCurrentSchedule().getTickCount(), this.firstNotCrashed(hashKey), this);
-			this.lookup_table.add(newLookup);
-			node.lookup(hashKey, this.lookup_table.size()-1);			
+			this.startLookup(node, hashKey);
 		}
 	}
 	
+	/**
+	 * Creates a new Lookup instance and starts the lookup of the given key from the given node
+	 * @param node the lookup initiator
+	 * @param hashKey the target key
+	 */
+	private void startLookup(Node node, int hashKey) {
+		int lookup_id = (int) this.lookup_stats.getIssued();
+		Lookup newLookup = new Lookup(lookup_id, hashKey, node.getId(), RunEnvironment.getInstance().getCurrentSchedule().getTickCount(), this.firstNotCrashed(hashKey), this);
+		this.lookup_stats.issued();
+		this.lookup_table.put(lookup_id, newLookup);
+		node.lookup(hashKey, lookup_id);
+	}
+	
+	/**
+	 * Key-value workload: kv_requests random nodes issue a get (with probability kv_get_ratio), a delete (with probability
+	 * kv_delete_ratio) of a stored key, or a put of new random data; the set of the stored keys is updated when the
+	 * puts and the deletes complete
+	 * @param m hash size
+	 * @param key_size number of characters used as key
+	 * @param data_size lenght of the data
+	 */
+	public void kvWorkload(int m, int key_size, int data_size) {
+		ArrayList<Node> validNodes = new ArrayList<>();
+		for(Node node: this.active_nodes) {
+			if(node.isInitialized() && !node.isCrashed()) {
+				validNodes.add(node);
+			}
+		}
+		if(validNodes.isEmpty()) {
+			return;
+		}
+		
+		for(int i=0; i < this.kv_requests; i++) {
+			Node node = validNodes.get(this.rnd.nextInt(validNodes.size()));
+			double operation = this.rnd.nextDouble();
+			if(operation < this.kv_get_ratio && !this.keys.isEmpty()) {
+				int hashKey = (new ArrayList<Integer>(this.keys)).get(this.rnd.nextInt(this.keys.size()));
+				node.get(hashKey);
+			} else if(operation < this.kv_get_ratio+this.kv_delete_ratio && !this.keys.isEmpty()) {
+				int hashKey = (new ArrayList<Integer>(this.keys)).get(this.rnd.nextInt(this.keys.size()));
+				node.delete(hashKey).thenAccept(request -> {
+					if(request.isServed()) {
+						this.keys.remove(request.getKey());
+					}
+				});
+			} else {
+				String data = RandomStringUtils.randomAlphabetic(data_size);
+				int hashKey = Utils.getHash(data.substring(0, key_size), m);
+				node.put(hashKey, data).thenAccept(request -> {
+					if(request.isServed()) {
+						this.keys.add(request.getKey());
+					}
+				});
+			}
+		}
+	}
+	
+	/**
+	 * Range query workload: a random node collects the keys in a random identifier range of range_query_width ids
+	 */
+	public void rangeQuery() {
+		ArrayList<Node> validNodes = new ArrayList<>();
+		for(Node node: this.active_nodes) {
+			if(node.isInitialized() && !node.isCrashed()) {
+				validNodes.add(node);
+			}
+		}
+		if(validNodes.isEmpty()) {
+			return;
+		}
+		Node node = validNodes.get(this.rnd.nextInt(validNodes.size()));
+		int from = this.rnd.nextInt(this.num_ids);
+		int to = (from + Math.max(this.range_query_width-1, 0)) % this.num_ids;
+		node.rangeQuery(from, to, this.range_fanout);
+	}
+	
+	/**
+	 * Records the result of a completed key-value operation in the statistics
+	 * @param request the completed operation
+	 */
+	public void kvCompleted(KVRequest request) {
+		this.lookup_stats.record(request);
+	}
+	
+	/**
+	 * Records the result of a completed lookup in the statistics; if the lookups are not stored, it is removed from the lookup table
+	 * @param lookup the completed lookup
+	 */
+	public void lookupCompleted(Lookup lookup) {
+		this.lookup_stats.record(lookup);
+		ProtocolEvents.lookup(lookup);
+		if(!this.store_lookups) {
+			this.lookup_table.remove(lookup.getId());
+		}
+	}
+	
+	/**
+	 * Returns the lookup statistics of the simulation
+	 * @return the lookup statistics of the simulation
+	 */
+	public LookupStats getLookupStats() {
+		return this.lookup_stats;
+	}
+	
 	/**
 	 * Writes a CSV file with all the lookups performed
 	 */
 	public void getLookupsResults() {
-		String results = "complete,duration,node_found,node_has_key,node_is_crashed,path_length,timeouts,nodes_contacted\n";
-		for(Lookup entry: this.lookup_table) {
+		String results = "complete,duration,node_found,node_has_key,node_is_crashed,path_length,timeouts,nodes_contacted,start_tick,parallel_saved,parallel_extra_messages\n";
+		for(Lookup entry: this.lookup_table.values()) {
 			results += entry.toCSV();
 		}
 		//return results;
@@ -368,6 +744,194 @@ public class TopologyBuilder implements ContextBuilder<Object> {
         }
 	}
 	
+	/**
+	 * Writes a binary snapshot of the simulation: random number generator, counters, keys, the state of all active nodes and
+	 * their grouping in physical nodes.
+	 * Scheduled events are not saved: the periodic ones are scheduled again by loadCheckpoint (the recoveries after the remaining time, the crash draws
+	 * and the stabilization rounds from the beginning of their interval), while the messages, lookups, key-value operations and range queries in flight are lost
+	 * @param file path of the snapshot file
+	 */
+	public void saveCheckpoint(String file) {
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(CHECKPOINT_MAGIC);
+			out.writeInt(this.hash_size);
+			out.writeInt(this.finger_base);
+			
+			ByteArrayOutputStream rnd_bytes = new ByteArrayOutputStream();
+			ObjectOutputStream rnd_out = new ObjectOutputStream(rnd_bytes);
+			rnd_out.writeObject(this.rnd);
+			rnd_out.close();
+			out.writeInt(rnd_bytes.size());
+			out.write(rnd_bytes.toByteArray());
+			
+			out.writeInt(this.forced_to_leave);
+			out.writeInt(this.additional_joins);
+			
+			out.writeInt(this.keys.size());
+			for(int key: this.keys) {
+				out.writeInt(key);
+			}
+			
+			out.writeInt(this.active_nodes.size());
+			for(Node node: this.active_nodes) {
+				node.writeState(out);
+			}
+			
+			LinkedHashMap<Integer, Host> hosts = new LinkedHashMap<>();
+			for(Node node: this.active_nodes) {
+				if(node.getHost() != null) {
+					hosts.put(node.getHost().getId(), node.getHost());
+				}
+			}
+			out.writeInt(this.next_host);
+			out.writeInt(this.filling_host == null ? -1 : this.filling_host.getId());
+			out.writeInt(hosts.size());
+			for(Host host: hosts.values()) {
+				out.writeInt(host.getId());
+				out.writeInt(host.getNodes().size());
+				for(Node node: host.getNodes()) { //the first one is the primary
+					out.writeInt(node.getId());
+				}
+			}
+			System.out.println("Checkpoint saved in " + new File(file).getCanonicalPath());
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				out.close();
+			} catch (Exception e) {
+			}
+		}
+	}
+	
+	/**
+	 * Restores a snapshot written by saveCheckpoint, adds the active nodes to the context and schedules their periodic events
+	 * @param file path of the snapshot file
+	 * @param context reference to the context
+	 * @param space reference to the 2D space
+	 * @throws RuntimeException if the snapshot cannot be read or has been taken with a different hash size
+	 */
+	private void loadCheckpoint(String file, Context<Object> context, ContinuousSpace<Object> space) {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if(in.readInt() != CHECKPOINT_MAGIC) {
+				throw new IOException("not a checkpoint file");
+			}
+			int m = in.readInt();
+			if(m != this.hash_size) {
+				throw new IOException("checkpoint taken with m = "+m);
+			}
+			int base = in.readInt();
+			if(base != this.finger_base) {
+				throw new IOException("checkpoint taken with finger base "+base);
+			}
+			
+			byte[] rnd_bytes = new byte[in.readInt()];
+			in.readFully(rnd_bytes);
+			ObjectInputStream rnd_in = new ObjectInputStream(new ByteArrayInputStream(rnd_bytes));
+			this.rnd = (Random) rnd_in.readObject();
+			
+			this.forced_to_leave = in.readInt();
+			this.additional_joins = in.readInt();
+			
+			int num_keys = in.readInt();
+			for(int i=0; i < num_keys; i++) {
+				this.keys.add(in.readInt());
+			}
+			
+			int num_nodes = in.readInt();
+			for(int i=0; i < num_nodes; i++) {
+				Node node = this.getNode(in.readInt());
+				node.readState(in, this);
+				this.active_nodes.add(node);
+				context.add(node);
+				space.moveTo(node, node.getX(), node.getY());
+			}
+			
+			//the physical nodes are rebuilt as saved, the active nodes are sorted by id and would otherwise be grouped with their neighbours
+			this.next_host = in.readInt();
+			int filling_id = in.readInt();
+			int num_hosts = in.readInt();
+			for(int i=0; i < num_hosts; i++) {
+				Host host = new Host(in.readInt());
+				int host_nodes = in.readInt();
+				for(int j=0; j < host_nodes; j++) {
+					Node node = this.getNode(in.readInt());
+					host.addNode(node);
+					node.setHost(host);
+				}
+				if(host.getId() == filling_id) {
+					this.filling_host = host;
+				}
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException("Error, cannot resume from checkpoint "+file, e);
+		} finally {
+			try {
+				in.close();
+			} catch (Exception e) {
+			}
+		}
+		
+		for(Node node: this.active_nodes) {
+			node.resumeSchedule();
+		}
+		System.out.println("Resumed "+this.active_nodes.size()+" nodes from "+file);
+	}
+	
+	/**
+	 * Writes a CSV file with the message statistics (totals per message type and per node per tick percentiles)
+	 */
+	public void getMessagesResults() {
+		BufferedWriter writer = null;
+		try {
+			String timeLog = new SimpleDateFormat("yyyyMMdd_HHmmss").format(Calendar.getInstance().getTime());
+			File logFile = new File(timeLog+"_messages.csv");
+			System.out.println("Messages file saved in " + logFile.getCanonicalPath());
+			writer = new BufferedWriter(new FileWriter(logFile));
+			writer.write(this.message_stats.toCSV());
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				writer.close();
+			} catch (Exception e) {
+			}
+		}
+	}
+	
+	/**
+	 * Writes a CSV file with the latency and path length percentiles of the find_successor operations, per type and time window
+	 */
+	public void getLookupStatsResults() {
+		BufferedWriter writer = null;
+		try {
+			String timeLog = new SimpleDateFormat("yyyyMMdd_HHmmss").format(Calendar.getInstance().getTime());
+			File logFile = new File(timeLog+"_lookup_stats.csv");
+			System.out.println("Lookup statistics file saved in " + logFile.getCanonicalPath());
+			writer = new BufferedWriter(new FileWriter(logFile));
+			writer.write(this.lookup_stats.toCSV());
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				writer.close();
+			} catch (Exception e) {
+			}
+		}
+	}
+	
+	/**
+	 * Returns the message accounting of the simulation
+	 * @return the message accounting of the simulation
+	 */
+	public MessageStats getMessageStats() {
+		return this.message_stats;
+	}
+	
 	/**
 	 * This method removes a variable number of nodes (between min_number_leave and this.min_number_leave + leave_amplitude) from the chord ring periodically;
 	 * at least one node is left in the ring. 
@@ -381,12 +945,23 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 	public void leaving_nodes(Context<Object> context, ContinuousSpace<Object> space, double join_interval) {
 		System.out.println("\nActive nodes before leaving: "+this.active_nodes.size());
 		int exiting_nodes_number = this.min_number_leaving + this.rnd.nextInt(this.leaving_amplitude);
-		exiting_nodes_number = exiting_nodes_number >= this.active_nodes.size() ? this.active_nodes.size() - 1 : exiting_nodes_number;
+		int physical_nodes = (int) Host.balance(this.active_nodes)[0];
+		exiting_nodes_number = exiting_nodes_number >= physical_nodes ? physical_nodes - 1 : exiting_nodes_number;
 		HashSet<Node> leaving_nodes = new HashSet<>();
-		while(leaving_nodes.size() != exiting_nodes_number) {
+		int leaving_hosts = 0;
+		while(leaving_hosts != exiting_nodes_number) {
 			Node rndNode =  (new ArrayList<Node>(this.active_nodes)).get(this.rnd.nextInt(this.active_nodes.size()));
 			if(!leaving_nodes.contains(rndNode) && rndNode.isInitialized() && !rndNode.isCrashed()) {
 				leaving_nodes.add(rndNode);
+				if(rndNode.getHost() != null) {
+					//the virtual nodes of a physical node leave together
+					for(Node sibling: rndNode.getHost().getNodes()) {
+						if(this.active_nodes.contains(sibling) && sibling.isInitialized() && !sibling.isCrashed()) {
+							leaving_nodes.add(sibling);
+						}
+					}
+				}
+				leaving_hosts++;
 			}
 		}
 		
@@ -443,6 +1018,79 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		}
 		System.out.println("\nLeaving node "+node.getId()+"  "+RunEnvironment.getInstance().getCurrentSchedule().getTickCount());
 		this.active_nodes.remove(node);
+		this.releaseHost(node);
+	}
+	
+	/**
+	 * Item balancing in the style of Karger-Ruhl: balance_probes random nodes probe a random peer each; if the load (stored keys)
+	 * of the probing node is at most balance_epsilon times the load of the peer, the probing node leaves and re-joins at the id
+	 * splitting the keys of the peer in two halves, becoming its predecessor. The keys move through the usual handoff: the leaving
+	 * node hands its keys over to its successor, then the peer transfers the first half of its keys when notified of the new predecessor
+	 * @param context reference to the context
+	 * @param space reference to the continuous space
+	 */
+	public void balance_items(Context<Object> context, ContinuousSpace<Object> space) {
+		ArrayList<Node> validNodes = new ArrayList<>();
+		for(Node node: this.active_nodes) {
+			if(node.isInitialized() && node.isSubscribed() && !node.isCrashed()) {
+				validNodes.add(node);
+			}
+		}
+		
+		for(int i=0; i < this.balance_probes && validNodes.size() > 2; i++) {
+			Node node = validNodes.get(this.rnd.nextInt(validNodes.size()));
+			Node peer = validNodes.get(this.rnd.nextInt(validNodes.size()));
+			if(node.equals(peer)) {
+				continue;
+			}
+			this.message_stats.record(MessageStats.MessageType.LOAD_BALANCE, node.getId(), MessageStats.idsMessageBytes(1));
+			this.message_stats.record(MessageStats.MessageType.LOAD_BALANCE, peer.getId(), MessageStats.idsMessageBytes(2));
+			
+			int peer_load = peer.getDataSize();
+			if(peer_load >= 2 && node.getDataSize() <= this.balance_epsilon*peer_load) {
+				int new_id = peer.splitKey();
+				if(new_id != -1 && this.isFreeId(new_id)) {
+					validNodes.remove(node);
+					this.reassign(context, space, node, new_id, peer);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Moves a node to a new id: the node leaves the ring and the node with the new id joins it through the given peer,
+	 * taking the place of the old one in its physical node
+	 * @param context reference to the context
+	 * @param space reference to the continuous space
+	 * @param node the node to move
+	 * @param new_id the new id
+	 * @param peer the node whose arc is split, used to join
+	 */
+	private void reassign(Context<Object> context, ContinuousSpace<Object> space, Node node, int new_id, Node peer) {
+		Host host = node.getHost();
+		HashSet<Node> leaving = new HashSet<>();
+		leaving.add(node);
+		this.nodeExit(context, node, leaving);
+		
+		Node moved = this.getNode(new_id);
+		this.active_nodes.add(moved);
+		if(host != null) {
+			host.addNode(moved);
+			moved.setHost(host);
+		}
+		context.add(moved);
+		space.moveTo(moved, moved.getX(), moved.getY());
+		System.out.println("\nNode "+node.getId()+" moved to "+new_id+" splitting the keys of "+peer.getId()+"  "+RunEnvironment.getInstance().getCurrentSchedule().getTickCount());
+		moved.join(peer);
+		this.reassignments++;
+	}
+	
+	/**
+	 * Returns the number of id reassignments performed by the item balancing
+	 * @return the number of id reassignments
+	 */
+	public int getReassignments() {
+		return this.reassignments;
 	}
 	
 	/**
@@ -452,26 +1100,44 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 	public void forced_to_leave(Node node) {
 		System.out.println("\nForced leaving node "+node.getId()+"  "+RunEnvironment.getInstance().getCurrentSchedule().getTickCount());
 		this.active_nodes.remove(node);
+		this.releaseHost(node);
 		this.forced_to_leave++;
 		this.additional_joins++;
+		ProtocolEvents.forcedLeave(node.getId(), this.active_nodes.size());
 	}
 	
 	/**
 	 * This method inserts a variable number of nodes (between min_number_joins and this.min_number_joins + join_amplitude + additional_joins) in the chord ring periodically;
 	 * if all the available nodes are already in the ring, no new nodes are inserted. 
 	 * In order to ensure that the nodes in the ring are correct, the insertions are scheduled after stab_offset+stab_amplitude ticks since the last leaving
+	 * If bulk_join is set, the whole batch is inserted with a single bulk join
 	 * @param context reference to the context
 	 * @param space reference to the 2D space
 	 */
 	public void join_new_nodes(Context<Object> context, ContinuousSpace<Object> space) {
-		int final_nodes_number = this.active_nodes.size() + this.min_number_joins + this.rnd.nextInt(this.join_amplitude) + this.additional_joins;
+		int final_nodes_number = this.active_nodes.size() + (this.min_number_joins + this.rnd.nextInt(this.join_amplitude))*this.virtual_nodes + this.additional_joins;
 		this.additional_joins = 0;
-		final_nodes_number  =  final_nodes_number > this.all_nodes.size() ? this.all_nodes.size() : final_nodes_number;
+		this.filling_host = null;
+		final_nodes_number  =  final_nodes_number > this.num_ids ? this.num_ids : final_nodes_number;
 		HashSet<Integer> new_join_ids = new HashSet<>();
+		if(this.bulk_join) {
+			ArrayList<Node> new_nodes = new ArrayList<>();
+			while(this.active_nodes.size() + new_nodes.size() < final_nodes_number) {
+				int rndId = this.rnd.nextInt(this.num_ids);
+				if(this.isFreeId(rndId) && !new_join_ids.contains(rndId)) {
+					new_join_ids.add(rndId);
+					new_nodes.add(this.getNode(rndId));
+				}
+			}
+			this.bulk_insert(new_nodes, context, space);
+			return;
+		}
 		while (this.active_nodes.size() != final_nodes_number ){
-			Node rndNode =  (new ArrayList<Node>(this.all_nodes)).get(this.rnd.nextInt(this.all_nodes.size()));
-			if (!this.active_nodes.contains(rndNode) && !new_join_ids.contains(rndNode.getId()) ) {
+			int rndId = this.rnd.nextInt(this.num_ids);
+			if (this.isFreeId(rndId) && !new_join_ids.contains(rndId) ) {
+				Node rndNode = this.getNode(rndId);
 				this.active_nodes.add(rndNode);
+				this.assignHost(rndNode);
 				new_join_ids.add(rndNode.getId());
 				context.add(rndNode);
 				space.moveTo(rndNode, rndNode.getX(), rndNode.getY());
@@ -521,6 +1187,28 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		}
 	}
 	
+	/**
+	 * Returns the number of nodes currently in the ring
+	 * @return the number of active nodes
+	 */
+	public int getActiveNodesNumber() {
+		return this.active_nodes.size();
+	}
+	
+	/**
+	 * Returns the number of nodes in the ring that are initialized and not crashed
+	 * @return the number of live nodes
+	 */
+	public int getLiveNodesNumber() {
+		int live = 0;
+		for(Node node: this.active_nodes) {
+			if(node.isInitialized() && !node.isCrashed()) {
+				live++;
+			}
+		}
+		return live;
+	}
+	
 	/**
 	 *  Return the number of nodes that have been forced to leave
 	 * @return number of nodes that have been forced to leave
@@ -537,7 +1225,7 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 	 * @param max_succ_size the maximum size of the successors list
 	 * @return a pair (ArrayList(Integer),ArrayList(Integer)) containing the missing successors and the wrong ones w.r.t. the ones provided
 	 */
-	public Pair<ArrayList<Integer>,ArrayList<Integer>> missingWrongSuccessors(Node node, ArrayList<Node> successors, Integer hashSize, Integer max_succ_size){
+	public Pair<ArrayList<Integer>,ArrayList<Integer>> missingWrongSuccessors(Node node, List<Node> successors, Integer hashSize, Integer max_succ_size){
 		ArrayList<Integer> rightSucc = new ArrayList<>();
 		
 		boolean end = false;
@@ -554,7 +1242,17 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 		if(rightSucc.isEmpty()) {
 			rightSucc.add(lastId);
 		}
-
+		
+		return compareSuccessors(successors, rightSucc);
+	}
+	
+	/**
+	 * Returns a pair of lists containing the missing successors and the wrong ones w.r.t. the correct ones
+	 * @param successors the successors list of the node of interest
+	 * @param rightSucc the ids of the correct successors, in order
+	 * @return a pair (ArrayList(Integer),ArrayList(Integer)) containing the missing successors and the wrong ones w.r.t. the ones provided
+	 */
+	public static Pair<ArrayList<Integer>,ArrayList<Integer>> compareSuccessors(List<Node> successors, List<Integer> rightSucc){
 		ArrayList<Integer> missingSucc = new ArrayList<>();
 		ArrayList<Integer> wrongSucc = new ArrayList<>();
 		
@@ -591,25 +1289,46 @@ public class TopologyBuilder implements ContextBuilder<Object> {
 	 * Prints some statistics about the lookups performed
 	 */
 	public void debug() {
-		int correct = 0;
-		int wrong = 0;
-		int incomplete = 0;
-		for(Lookup entry: this.lookup_table) {
-			if(entry.isComplete()) {
-				if(entry.getResult()) {
-					correct++;
-				} else {
-					wrong++;
-				}
-			} else {
-				incomplete ++;
-			}
-		}
+		long correct = this.lookup_stats.getCorrect("lookup");
+		long wrong = this.lookup_stats.getCompleted("lookup") - correct;
+		long incomplete = this.lookup_stats.getIssued() - this.lookup_stats.getCompleted("lookup");
 		
 		System.out.println("\nCorrect: "+correct);
 		System.out.println("Wrong: "+wrong);
 		System.out.println("Incomplete: "+incomplete+"\n");
+		System.out.println("Lookup latency p50/p90/p99/p999: "+this.lookup_stats.getLatencyPercentile("lookup", 50)+" "+this.lookup_stats.getLatencyPercentile("lookup", 90)
+				+" "+this.lookup_stats.getLatencyPercentile("lookup", 99)+" "+this.lookup_stats.getLatencyPercentile("lookup", 99.9));
+		System.out.println("Lookup hops p50/p90/p99/p999: "+this.lookup_stats.getHopsPercentile("lookup", 50)+" "+this.lookup_stats.getHopsPercentile("lookup", 90)
+				+" "+this.lookup_stats.getHopsPercentile("lookup", 99)+" "+this.lookup_stats.getHopsPercentile("lookup", 99.9));
+		if(this.lookup_stats.getCompleted("batch") > 0) {
+			System.out.println("Batched keys completed/correct: "+this.lookup_stats.getCompleted("batch")+" "+this.lookup_stats.getCorrect("batch")
+					+", latency p50/p99: "+this.lookup_stats.getLatencyPercentile("batch", 50)+" "+this.lookup_stats.getLatencyPercentile("batch", 99));
+		}
+		System.out.println("Messages per key: lookup "+(double) this.message_stats.getMessages(MessageStats.MessageType.LOOKUP)/Math.max(this.lookup_stats.getCompleted("lookup"), 1)
+				+", batch "+(double) this.message_stats.getMessages(MessageStats.MessageType.BATCH_LOOKUP)/Math.max(this.lookup_stats.getCompleted("batch"), 1));
+		if(this.lookup_stats.getCompleted("range") > 0) {
+			System.out.println("Range queries completed/failed/covered: "+this.lookup_stats.getCompleted("range")+" "+this.lookup_stats.getFailed("range")+" "+this.lookup_stats.getCorrect("range")
+					+", latency p50/p99: "+this.lookup_stats.getLatencyPercentile("range", 50)+" "+this.lookup_stats.getLatencyPercentile("range", 99)
+					+", messages per query: "+(double) this.message_stats.getMessages(MessageStats.MessageType.RANGE_SCAN)/this.lookup_stats.getCompleted("range"));
+		}
+		for(KVRequest.Operation operation: KVRequest.Operation.values()) {
+			String type = operation.getType();
+			if(this.lookup_stats.getCompleted(type) > 0) {
+				System.out.println("KV "+type+" completed/failed/correct: "+this.lookup_stats.getCompleted(type)+" "+this.lookup_stats.getFailed(type)+" "+this.lookup_stats.getCorrect(type)
+						+", latency p50/p99: "+this.lookup_stats.getLatencyPercentile(type, 50)+" "+this.lookup_stats.getLatencyPercentile(type, 99));
+			}
+		}
+		long[] balance = Host.balance(this.active_nodes);
+		if(balance[0] > 0) {
+			System.out.println("Physical nodes: "+balance[0]+" ("+this.virtual_nodes+" virtual nodes each), keys max/mean: "+balance[1]+" "+(double) balance[2]/balance[0]
+					+", requests served max/mean: "+balance[3]+" "+(double) balance[4]/balance[0]);
+		}
+		System.out.println("Id reassignments: "+ this.reassignments);
 		System.out.println("Forced leaving: "+ this.forced_to_leave);
+		System.out.println("Messages: "+this.message_stats.getTotalMessages()+" ("+this.message_stats.getMaintenanceMessages()+" maintenance, "+this.message_stats.getMessages(MessageStats.MessageType.LOOKUP)+" lookup)");
+		System.out.println("Bytes: "+this.message_stats.getTotalBytes());
+		long[] succ_list_bytes = this.message_stats.getSuccessorListBytes();
+		System.out.println("Successors list bytes sent/whole lists: "+succ_list_bytes[0]+" "+succ_list_bytes[1]);
 	}
 	
 	/**
@@ -90,23 +90,32 @@ except OSError:
 	wprint("Directory already exists, exiting.")
 	sys.exit(-1)
 
-data_node = {}
+data_ring = {}
 data_lookup = {}
 
 data_node_up = {}
 
 for dsid in datasources:
 	if "loadnodes" in requests:
-		if not os.path.isfile(basefolder+"/"+dsid+"_Node.csv"):
-			wprint("warning: invalid file \"%s\"!"%(basefolder+"/"+dsid+"_Node.csv"))
+		if not os.path.isfile(basefolder+"/"+dsid+"_ring.csv"):
+			wprint("warning: invalid file \"%s\"!"%(basefolder+"/"+dsid+"_ring.csv"))
 		else:
-			print("loading %s..."%(dsid+"_Node"))
-			data_node[dsid+"_Node"] = pd.read_csv(basefolder+"/"+dsid+"_Node.csv")
+			print("loading %s..."%(dsid+"_ring"))
+			data_ring[dsid+"_ring"] = pd.read_csv(basefolder+"/"+dsid+"_ring.csv")
 
-			data_node[dsid+"_Node"]["errors"] = data_node[dsid+"_Node"].apply(lambda row:sum([int(i) for i in row["MissingWrongSuccessorsNum"][1:-1].split(",")]), axis=1)
-			data_node[dsid+"_Node"]["phase"] = (data_node[dsid+"_Node"]["tick"]/phaseperiod_node).astype(int)*phaseperiod_node
+			#average errors per live node, one row per tick
+			data_ring[dsid+"_ring"]["errors"] = (data_ring[dsid+"_ring"]["missing_succ"]+data_ring[dsid+"_ring"]["wrong_succ"])/data_ring[dsid+"_ring"]["live"].clip(lower=1)
+			data_ring[dsid+"_ring"]["phase"] = (data_ring[dsid+"_ring"]["tick"]/phaseperiod_node).astype(int)*phaseperiod_node
 
-			data_node_up[dsid+"_Node"] = data_node[dsid+"_Node"].loc[(data_node[dsid+"_Node"]["Crashed"]==False)&(data_node[dsid+"_Node"]["Subscribed"]==True)&(data_node[dsid+"_Node"]["Initialized"]==True)]
+		if not os.path.isfile(basefolder+"/"+dsid+"_node_sample.csv"):
+			wprint("warning: invalid file \"%s\" (written only if ring_metrics_sample > 0)!"%(basefolder+"/"+dsid+"_node_sample.csv"))
+		else:
+			print("loading %s..."%(dsid+"_node_sample"))
+			data_sample = pd.read_csv(basefolder+"/"+dsid+"_node_sample.csv")
+
+			data_sample["errors"] = data_sample["missing_succ"]+data_sample["wrong_succ"]
+
+			data_node_up[dsid+"_node_sample"] = data_sample.loc[(data_sample["crashed"]==False)&(data_sample["subscribed"]==True)&(data_sample["initialized"]==True)]
 
 	if "loadlookups" in requests:
 		if not os.path.isfile(basefolder+"/"+dsid+"_Lookup.csv"):
@@ -256,7 +265,7 @@ if "loadnodes" not in requests:
 	wprint("Nodes file not loaded, some plots may have ben skipped")
 else:
 	if "errors_box" in requests:
-		plt.boxplot([df.groupby(["Id"],as_index=False).mean()["errors"] for df in data_node_up.values()],showfliers=True,labels=[run_names[k.split("_")[0]][requests_titles["errors_box"]] for k in data_node_up.keys()])
+		plt.boxplot([df.groupby(["id"],as_index=False).mean()["errors"] for df in data_node_up.values()],showfliers=True,labels=[run_names[k.split("_")[0]][requests_titles["errors_box"]] for k in data_node_up.keys()])
 
 		plt.gca().set_ylabel("Errors in the node data structures")
 		plt.gca().set_xlabel("Runs")
@@ -268,7 +277,7 @@ else:
 		else: 
 			plt.close()
 	if "errors_time" in requests:
-		for name,df in data_node_up.items():
+		for name,df in data_ring.items():
 			df.groupby("phase")["errors"].mean().plot(label=run_names[name.split("_")[0]][requests_titles["errors_time"]])
 
 		plt.gca().set_xlabel("Ticks")
@@ -282,8 +291,8 @@ else:
 		else: 
 			plt.close()
 	if "nodesup_time" in requests:
-		for name,df in data_node_up.items():
-			df.groupby("tick")["Id"].count().plot(label=run_names[name.split("_")[0]][requests_titles["nodesup_time"]])
+		for name,df in data_ring.items():
+			df.set_index("tick")["live"].plot(label=run_names[name.split("_")[0]][requests_titles["nodesup_time"]])
 
 		plt.gca().set_xlabel("Ticks")
 		plt.gca().set_ylabel("Number of active nodes")
@@ -296,7 +305,7 @@ else:
 		else: 
 			plt.close()
 	if "keyspernode" in requests:
-		plt.boxplot([df.groupby(["Id"],as_index=False).mean()["DataSize"] for df in data_node_up.values()],showfliers=True,labels=[run_names[k.split("_")[0]][requests_titles["keyspernode"]] for k in data_node_up.keys()])
+		plt.boxplot([df.groupby(["id"],as_index=False).mean()["data_size"] for df in data_node_up.values()],showfliers=True,labels=[run_names[k.split("_")[0]][requests_titles["keyspernode"]] for k in data_node_up.keys()])
 
 		plt.gca().set_ylabel("Number of keys per node")
 		plt.gca().set_xlabel("Runs")